@@ -0,0 +1,130 @@
+package net.fyrxlab.solverMOTD;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Longest prefix match of one pinger address, {@link CidrTrie} against a scan over every block.
+ * Blocks are random, half IPv4 and half IPv6; half the addresses fall inside a block.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CidrTrieBenchmark {
+
+    private static final int ADDRESSES = 4096; // Cycled through, a power of two
+
+    @Param({"10000", "50000"})
+    public int ranges;
+
+    // Blocks for the scan: prefix bits and length over 128 bits, IPv4 mapped to ::ffff:a.b.c.d
+    private long[] high;
+    private long[] low;
+    private int[] length;
+    private CidrTrie trie;
+    private InetAddress[] addresses;
+    private int next;
+
+    @Setup
+    public void setUp() throws UnknownHostException {
+        Random random = new Random(ranges);
+        high = new long[ranges];
+        low = new long[ranges];
+        length = new int[ranges];
+        CidrTrie.Builder builder = new CidrTrie.Builder();
+        for (int i = 0; i < ranges; i++) {
+            boolean ipv4 = random.nextBoolean();
+            int bits = ipv4 ? 96 + 8 + random.nextInt(25) : 16 + random.nextInt(113);
+            long blockHigh = ipv4 ? 0L : 0x2000_0000_0000_0000L | (random.nextLong() >>> 4);
+            long blockLow = ipv4 ? 0xFFFF_0000_0000L | (random.nextInt() & 0xFFFF_FFFFL) : random.nextLong();
+            high[i] = blockHigh & mask(bits);
+            low[i] = blockLow & mask(bits - 64);
+            length[i] = bits;
+            InetAddress base = InetAddress.getByAddress(bytes(high[i], low[i]));
+            builder.add(base.getHostAddress() + "/" + (ipv4 ? bits - 96 : bits), i);
+        }
+        trie = builder.build();
+
+        addresses = new InetAddress[ADDRESSES];
+        for (int i = 0; i < ADDRESSES; i++) {
+            int block = random.nextInt(ranges);
+            boolean ipv4 = length[block] > 96 && high[block] == 0L;
+            long addressHigh;
+            long addressLow;
+            if (random.nextBoolean()) {
+                addressHigh = high[block] | (~mask(length[block]) & random.nextLong());
+                addressLow = low[block] | (~mask(length[block] - 64) & (ipv4 ? random.nextInt() & 0xFFFF_FFFFL : random.nextLong()));
+            } else {
+                addressHigh = ipv4 ? 0L : 0x2000_0000_0000_0000L | (random.nextLong() >>> 4);
+                addressLow = ipv4 ? 0xFFFF_0000_0000L | (random.nextInt() & 0xFFFF_FFFFL) : random.nextLong();
+            }
+            addresses[i] = InetAddress.getByAddress(bytes(addressHigh, addressLow));
+        }
+    }
+
+    @Benchmark
+    public int trie() {
+        return trie.lookup(addresses[next++ & (ADDRESSES - 1)]);
+    }
+
+    @Benchmark
+    public int linearScan() {
+        byte[] bytes = addresses[next++ & (ADDRESSES - 1)].getAddress();
+        long addressHigh = 0L;
+        long addressLow;
+        if (bytes.length == 16) {
+            addressHigh = toLong(bytes, 0);
+            addressLow = toLong(bytes, 8);
+        } else {
+            addressLow = 0xFFFF_0000_0000L | (toLong(new byte[]{0, 0, 0, 0, bytes[0], bytes[1], bytes[2], bytes[3]}, 0));
+        }
+        int best = -1;
+        int bestBits = -1;
+        for (int i = 0; i < length.length; i++) {
+            int bits = length[i];
+            if (bits > bestBits && (addressHigh & mask(bits)) == high[i] && (addressLow & mask(bits - 64)) == low[i]) {
+                best = i;
+                bestBits = bits;
+            }
+        }
+        return best;
+    }
+
+    private static long mask(int bits) {
+        return bits <= 0 ? 0L : bits >= 64 ? -1L : -1L << (64 - bits);
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static byte[] bytes(long high, long low) {
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (high >>> (56 - 8 * i));
+            bytes[8 + i] = (byte) (low >>> (56 - 8 * i));
+        }
+        return bytes;
+    }
+}
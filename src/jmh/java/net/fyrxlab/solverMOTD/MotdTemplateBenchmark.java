@@ -0,0 +1,89 @@
+package net.fyrxlab.solverMOTD;
+
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.bukkit.event.server.ServerListPingEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering a MiniMessage MOTD whose value changes on every ping: a pre-parsed {@link MotdTemplate}
+ * against deserializing and serializing the filled in markup, what every ping did before.
+ * The value comes from a per-pinger placeholder, so the render cache is skipped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MotdTemplateBenchmark {
+
+    private static final String[] NAMES = {"Steve", "Alex", "Notch", "jeb_", "Dinnerbone", "Grumm", "Herobrine", ""};
+
+    @Param({"gradient", "nested"})
+    public String motd;
+
+    private final LegacyComponentSerializer serializer = LegacyComponentSerializer.builder()
+            .character(LegacyComponentSerializer.SECTION_CHAR)
+            .hexColors()
+            .useUnusualXRepeatedCharacterHexFormat()
+            .build();
+    private String markup;
+    private MotdTemplate template;
+    private PlaceholderSnapshot snapshot;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        NativePlaceholder name = new NativePlaceholder() {
+            @Override
+            public String resolve(ServerListPingEvent event) {
+                return NAMES[next++ & (NAMES.length - 1)];
+            }
+
+            @Override
+            public boolean isPerPinger() {
+                return true;
+            }
+        };
+        markup = motd.equals("gradient")
+                ? "<gradient:gold:yellow>My Server</gradient> <gray>- <white>1.8-1.21\n<green>Welcome back, <bold>{name}</bold>!"
+                : "<bold><red>Hi <italic>{name}</italic></red></bold> <hover:show_text:'tip'><aqua>Join now</aqua></hover>";
+        PlaceholderRegistry registry = new PlaceholderRegistry(Collections.singletonMap("name", name), false);
+        String[] raw = markup.split("\n");
+        MotdLine[] lines = new MotdLine[raw.length];
+        for (int i = 0; i < raw.length; i++) {
+            lines[i] = MotdLine.parse(raw[i], registry);
+        }
+        template = new MotdTemplate(MotdTemplate.RenderMode.MINIMESSAGE, lines, new boolean[raw.length], registry,
+                new ColorFormatter(true), null);
+        if (template.isParsedPerRender()) {
+            throw new IllegalStateException("Markup can't be pre-parsed: " + markup);
+        }
+        snapshot = new PlaceholderSnapshot(new String[registry.size()]);
+    }
+
+    @Benchmark
+    public String preParsed() {
+        return template.render(null, snapshot);
+    }
+
+    @Benchmark
+    public String deserialize() {
+        String filled = markup.replace("{name}", NAMES[next++ & (NAMES.length - 1)]);
+        return serializer.serialize(MiniMessage.miniMessage().deserialize(filled));
+    }
+}
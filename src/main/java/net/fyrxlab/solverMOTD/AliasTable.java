@@ -0,0 +1,63 @@
+package net.fyrxlab.solverMOTD;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Walker's alias method: picks a weighted index in constant time from 64 random bits.
+ * Built once per reload, a pick only reads two arrays.
+ */
+public final class AliasTable {
+
+    private final int[] alias;
+    private final long[] threshold; // Probability of keeping the column, scaled to 32 bits
+
+    /**
+     * @param weights Non-negative weights, at least one must be positive
+     */
+    public AliasTable(double[] weights) {
+        int n = weights.length;
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double[] scaled = new double[n];
+        Deque<Integer> small = new ArrayDeque<>();
+        Deque<Integer> large = new ArrayDeque<>();
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            (scaled[i] < 1.0 ? small : large).push(i);
+        }
+        this.alias = new int[n];
+        this.threshold = new long[n];
+        while (!small.isEmpty() && !large.isEmpty()) {
+            int less = small.pop();
+            int more = large.pop();
+            threshold[less] = (long) (scaled[less] * (1L << 32));
+            alias[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1.0;
+            (scaled[more] < 1.0 ? small : large).push(more);
+        }
+        // Leftovers only differ from 1 by rounding errors
+        while (!large.isEmpty()) {
+            int index = large.pop();
+            threshold[index] = 1L << 32;
+            alias[index] = index;
+        }
+        while (!small.isEmpty()) {
+            int index = small.pop();
+            threshold[index] = 1L << 32;
+            alias[index] = index;
+        }
+    }
+
+    /**
+     * Picks an index
+     * @param bits Uniformly distributed random bits, e.g. a random long or a mixed hash
+     * @return Index picked with a probability proportional to its weight
+     */
+    public int pick(long bits) {
+        int column = (int) (((bits >>> 32) * alias.length) >>> 32);
+        return (bits & 0xFFFFFFFFL) < threshold[column] ? column : alias[column];
+    }
+}
@@ -0,0 +1,288 @@
+package net.fyrxlab.solverMOTD;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Longest prefix match of IPv4 and IPv6 CIDR blocks, e.g. "203.0.113.0/24" or "2001:db8::/32".
+ * Addresses are 128-bit, IPv4 ones mapped to ::ffff:a.b.c.d, and the blocks form a path compressed
+ * binary trie stored in primitive arrays: a lookup visits at most one node per distinct prefix length
+ * on its path and allocates nothing for IPv4 pingers.
+ */
+public final class CidrTrie {
+
+    private static final long IPV4_MAPPED = 0xFFFF_0000_0000L; // ::ffff:0:0/96, low 64 bits
+
+    // Node i: prefix bits (high and low 64), prefix length, value or -1, children at 2i and 2i + 1 or -1
+    private final long[] high;
+    private final long[] low;
+    private final int[] length;
+    private final int[] values;
+    private final int[] children;
+
+    private CidrTrie(long[] high, long[] low, int[] length, int[] values, int[] children) {
+        this.high = high;
+        this.low = low;
+        this.length = length;
+        this.values = values;
+        this.children = children;
+    }
+
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+
+    public int getNodeCount() {
+        return values.length;
+    }
+
+    /**
+     * Finds the most specific block holding an address
+     * @param address Address of the pinger
+     * @return Value of the block, -1 if none holds the address
+     */
+    public int lookup(InetAddress address) {
+        if (values.length == 0 || address == null) {
+            return -1;
+        }
+        if (address instanceof Inet4Address) {
+            // Inet4Address hashes to its address, this avoids the array copy of getAddress()
+            return lookup(0L, IPV4_MAPPED | (address.hashCode() & 0xFFFF_FFFFL));
+        }
+        byte[] bytes = address.getAddress();
+        return lookup(toLong(bytes, 0), toLong(bytes, 8));
+    }
+
+    /**
+     * @param addressHigh First 64 bits of the address
+     * @param addressLow Last 64 bits of the address
+     * @return Value of the most specific block holding the address, -1 if none
+     */
+    public int lookup(long addressHigh, long addressLow) {
+        int best = -1;
+        int node = 0;
+        while (node >= 0 && matches(node, addressHigh, addressLow)) {
+            if (values[node] >= 0) {
+                best = values[node];
+            }
+            int bits = length[node];
+            if (bits == 128) {
+                break;
+            }
+            node = children[2 * node + bit(addressHigh, addressLow, bits)];
+        }
+        return best;
+    }
+
+    private boolean matches(int node, long addressHigh, long addressLow) {
+        int bits = length[node];
+        if (bits <= 64) {
+            return ((addressHigh ^ high[node]) & mask(bits)) == 0;
+        }
+        return addressHigh == high[node] && ((addressLow ^ low[node]) & mask(bits - 64)) == 0;
+    }
+
+    // The first bits of a 64-bit half
+    private static long mask(int bits) {
+        return bits == 0 ? 0L : -1L << (64 - bits);
+    }
+
+    private static int bit(long addressHigh, long addressLow, int index) {
+        return (int) (index < 64 ? addressHigh >>> (63 - index) : addressLow >>> (127 - index)) & 1;
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Collects the blocks, then flattens them into a {@link CidrTrie}
+     */
+    public static final class Builder {
+
+        private Node root;
+        private int ranges;
+
+        /**
+         * Adds a block, a block added twice keeps its last value
+         * @param cidr Block such as "10.0.0.0/8", "2001:db8::/32" or a single address
+         * @param value Value returned for the addresses of the block, 0 or more
+         * @throws IllegalArgumentException If the block is not valid
+         */
+        public void add(String cidr, int value) {
+            String text = cidr.trim();
+            int slash = text.indexOf('/');
+            String literal = slash < 0 ? text : text.substring(0, slash);
+            byte[] bytes = literal.indexOf(':') < 0 ? parseIpv4(literal) : parseIpv6(literal);
+            if (bytes == null) {
+                throw new IllegalArgumentException("\"" + cidr + "\" is not an IP address or CIDR block");
+            }
+            int maxBits = bytes.length * 8;
+            int bits;
+            try {
+                bits = slash < 0 ? maxBits : Integer.parseInt(text.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid prefix length in \"" + cidr + "\"");
+            }
+            if (bits < 0 || bits > maxBits) {
+                throw new IllegalArgumentException("Prefix length of \"" + cidr + "\" must be 0-" + maxBits);
+            }
+            long addressHigh;
+            long addressLow;
+            if (bytes.length == 4) {
+                addressHigh = 0L;
+                addressLow = IPV4_MAPPED | (toLong(new byte[]{0, 0, 0, 0, bytes[0], bytes[1], bytes[2], bytes[3]}, 0));
+                bits += 96;
+            } else {
+                addressHigh = toLong(bytes, 0);
+                addressLow = toLong(bytes, 8);
+            }
+            root = insert(root, new Node(addressHigh, addressLow, bits, value));
+            ranges++;
+        }
+
+        // Dotted quad only, "10.1" or a host name like "cafe" is rejected
+        private static byte[] parseIpv4(String literal) {
+            byte[] bytes = new byte[4];
+            int part = 0;
+            int value = 0;
+            int digits = 0;
+            for (int i = 0; i <= literal.length(); i++) {
+                char c = i < literal.length() ? literal.charAt(i) : '.';
+                if (c >= '0' && c <= '9') {
+                    value = value * 10 + (c - '0');
+                    if (++digits > 3 || value > 255) {
+                        return null;
+                    }
+                } else if (c == '.' && digits > 0 && part < 4) {
+                    bytes[part++] = (byte) value;
+                    value = 0;
+                    digits = 0;
+                } else {
+                    return null;
+                }
+            }
+            return part == 4 ? bytes : null;
+        }
+
+        // getByName parses a literal holding ':' and starting with a hex digit or ':' as IPv6 and never
+        // resolves it, the zone id is rejected first since it would look up a network interface
+        private static byte[] parseIpv6(String literal) {
+            if (literal.charAt(0) == '.') {
+                return null;
+            }
+            for (int i = 0; i < literal.length(); i++) {
+                char c = literal.charAt(i);
+                if (Character.digit(c, 16) < 0 && c != '.' && c != ':') {
+                    return null;
+                }
+            }
+            try {
+                return InetAddress.getByName(literal).getAddress();
+            } catch (UnknownHostException e) {
+                return null;
+            }
+        }
+
+        public int getRangeCount() {
+            return ranges;
+        }
+
+        private static Node insert(Node node, Node added) {
+            if (node == null) {
+                return added;
+            }
+            int common = Math.min(Math.min(node.length, added.length), commonBits(node, added));
+            if (common < node.length) {
+                // The new block branches off inside this node's prefix: split it
+                Node split = new Node(added.high, added.low, common, -1);
+                split.children[bit(node.high, node.low, common)] = node;
+                if (common == added.length) {
+                    split.value = added.value;
+                } else {
+                    split.children[bit(added.high, added.low, common)] = added;
+                }
+                return split;
+            }
+            if (added.length == node.length) {
+                node.value = added.value;
+                return node;
+            }
+            int side = bit(added.high, added.low, node.length);
+            node.children[side] = insert(node.children[side], added);
+            return node;
+        }
+
+        private static int commonBits(Node a, Node b) {
+            long high = a.high ^ b.high;
+            if (high != 0) {
+                return Long.numberOfLeadingZeros(high);
+            }
+            return 64 + Long.numberOfLeadingZeros(a.low ^ b.low);
+        }
+
+        /**
+         * @return Trie holding every block added so far
+         */
+        public CidrTrie build() {
+            // A root with an empty prefix keeps lookups starting at node 0
+            Node start = root == null || root.length == 0 ? root : new Node(0L, 0L, 0, -1);
+            if (start != null && start != root) {
+                start.children[bit(root.high, root.low, 0)] = root;
+            }
+            int count = count(start);
+            long[] high = new long[count];
+            long[] low = new long[count];
+            int[] length = new int[count];
+            int[] values = new int[count];
+            int[] children = new int[count * 2];
+            if (start != null) {
+                flatten(start, 0, new int[]{1}, high, low, length, values, children);
+            }
+            return new CidrTrie(high, low, length, values, children);
+        }
+
+        private static int count(Node node) {
+            return node == null ? 0 : 1 + count(node.children[0]) + count(node.children[1]);
+        }
+
+        private static void flatten(Node node, int index, int[] next, long[] high, long[] low, int[] length,
+                                    int[] values, int[] children) {
+            high[index] = node.high;
+            low[index] = node.low;
+            length[index] = node.length;
+            values[index] = node.value;
+            for (int side = 0; side < 2; side++) {
+                Node child = node.children[side];
+                if (child == null) {
+                    children[2 * index + side] = -1;
+                } else {
+                    int childIndex = next[0]++;
+                    children[2 * index + side] = childIndex;
+                    flatten(child, childIndex, next, high, low, length, values, children);
+                }
+            }
+        }
+
+        // Build time node, bits past the prefix length are cleared
+        private static final class Node {
+            final long high;
+            final long low;
+            final int length;
+            int value;
+            final Node[] children = new Node[2];
+
+            Node(long high, long low, int length, int value) {
+                this.high = length >= 64 ? high : high & mask(length);
+                this.low = length <= 64 ? 0L : low & mask(length - 64);
+                this.length = length;
+                this.value = value;
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package net.fyrxlab.solverMOTD;
+
+import java.util.Locale;
+
+/**
+ * Translates '&' color codes and hex colors into '§' codes in a single pass.
+ * Supports "&#RRGGBB" and "&x&R&R&G&G&B&B", written as the "§x§R§R§G§G§B§B" sequence clients 1.16+
+ * understand, or downsampled to the nearest legacy color when hex colors are not supported.
+ */
+public final class ColorFormatter {
+
+    private static final char SECTION = '§';
+    private static final String CODES = "0123456789abcdefklmnor";
+
+    // RGB value of every legacy color code 0-f
+    private static final int[] LEGACY_RGB = {
+            0x000000, 0x0000AA, 0x00AA00, 0x00AAAA, 0xAA0000, 0xAA00AA, 0xFFAA00, 0xAAAAAA,
+            0x555555, 0x5555FF, 0x55FF55, 0x55FFFF, 0xFF5555, 0xFF55FF, 0xFFFF55, 0xFFFFFF
+    };
+
+    private final boolean hexColors;
+
+    /**
+     * @param hexColors Whether hex colors are kept, false downsamples them to legacy colors
+     */
+    public ColorFormatter(boolean hexColors) {
+        this.hexColors = hexColors;
+    }
+
+    /**
+     * Creates the formatter matching the "hex_colors" setting
+     * @param setting "auto", "true" or "false"
+     * @param bukkitVersion Server version, e.g. "1.21.4-R0.1-SNAPSHOT", used by "auto"
+     * @return Formatter
+     */
+    public static ColorFormatter forSetting(String setting, String bukkitVersion) {
+        String value = setting == null ? "auto" : setting.trim().toLowerCase(Locale.ROOT);
+        if (value.equals("true")) {
+            return new ColorFormatter(true);
+        }
+        if (value.equals("false")) {
+            return new ColorFormatter(false);
+        }
+        return new ColorFormatter(supportsHex(bukkitVersion));
+    }
+
+    /**
+     * @param bukkitVersion Server version, e.g. "1.21.4-R0.1-SNAPSHOT"
+     * @return Whether the version understands hex colors (1.16+)
+     */
+    static boolean supportsHex(String bukkitVersion) {
+        if (bukkitVersion == null || !bukkitVersion.startsWith("1.")) {
+            return bukkitVersion != null; // Unknown scheme, assume a modern server
+        }
+        int minor = 0;
+        for (int i = 2; i < bukkitVersion.length() && Character.isDigit(bukkitVersion.charAt(i)); i++) {
+            minor = minor * 10 + (bukkitVersion.charAt(i) - '0');
+        }
+        return minor >= 16;
+    }
+
+    public boolean hasHexColors() {
+        return hexColors;
+    }
+
+    /**
+     * Translates every color code of a text
+     * @param text Text using '&' codes
+     * @return Text using '§' codes, the same instance when it has no '&' at all
+     */
+    public String format(String text) {
+        int first = text.indexOf('&');
+        if (first < 0) {
+            return text;
+        }
+        // A hex color grows from 8 to 14 chars, a little headroom avoids most resizes
+        StringBuilder builder = new StringBuilder(text.length() + 16);
+        builder.append(text, 0, first);
+        int length = text.length();
+        int i = first;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c != '&' || i + 1 >= length) {
+                builder.append(c);
+                i++;
+                continue;
+            }
+            char code = Character.toLowerCase(text.charAt(i + 1));
+            if (code == '#' && isHex(text, i + 2, 6, 1)) {
+                appendHex(builder, text, i + 2, 1);
+                i += 8;
+            } else if (code == 'x' && isHex(text, i + 3, 6, 2) && isRepeatedAmpersands(text, i + 2)) {
+                appendHex(builder, text, i + 3, 2);
+                i += 14;
+            } else if (CODES.indexOf(code) >= 0) {
+                builder.append(SECTION).append(code);
+                i += 2;
+            } else {
+                builder.append(c);
+                i++;
+            }
+        }
+        return builder.toString();
+    }
+
+    // Append the hex color whose digits start at offset, spaced by stride chars
+    private void appendHex(StringBuilder builder, String text, int offset, int stride) {
+        if (hexColors) {
+            builder.append(SECTION).append('x');
+            for (int d = 0; d < 6; d++) {
+                builder.append(SECTION).append(Character.toLowerCase(text.charAt(offset + d * stride)));
+            }
+            return;
+        }
+        int rgb = 0;
+        for (int d = 0; d < 6; d++) {
+            rgb = (rgb << 4) | Character.digit(text.charAt(offset + d * stride), 16);
+        }
+        builder.append(SECTION).append(CODES.charAt(nearestLegacy(rgb)));
+    }
+
+    /**
+     * Finds the legacy color closest to an RGB value
+     * @param rgb Color as 0xRRGGBB
+     * @return Index of the legacy color code 0-15
+     */
+    static int nearestLegacy(int rgb) {
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        int best = 0;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < LEGACY_RGB.length; i++) {
+            int dr = r - ((LEGACY_RGB[i] >> 16) & 0xFF);
+            int dg = g - ((LEGACY_RGB[i] >> 8) & 0xFF);
+            int db = b - (LEGACY_RGB[i] & 0xFF);
+            int distance = dr * dr + dg * dg + db * db;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static boolean isHex(String text, int offset, int digits, int stride) {
+        if (offset + (digits - 1) * stride >= text.length()) {
+            return false;
+        }
+        for (int d = 0; d < digits; d++) {
+            if (Character.digit(text.charAt(offset + d * stride), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // "&x&R&R&G&G&B&B": every digit is preceded by an '&'
+    private static boolean isRepeatedAmpersands(String text, int offset) {
+        for (int d = 0; d < 6; d++) {
+            if (text.charAt(offset + d * 2) != '&') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
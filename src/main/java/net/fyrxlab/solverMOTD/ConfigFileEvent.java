@@ -0,0 +1,31 @@
+package net.fyrxlab.solverMOTD;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of config.yml or messages.yml being merged with its defaults and rewritten.
+ */
+@Name("solvermotd.ConfigFile")
+@Label("Config File Update")
+@Category("SolverMOTD")
+@Description("A configuration file merged with the defaults of the plugin and saved again")
+@StackTrace(false)
+final class ConfigFileEvent extends Event {
+
+    @Label("File")
+    String file;
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytesRead;
+
+    @Label("Bytes Written")
+    @DataAmount
+    long bytesWritten;
+}
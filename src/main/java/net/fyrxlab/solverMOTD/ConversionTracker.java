@@ -0,0 +1,112 @@
+package net.fyrxlab.solverMOTD;
+
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Attributes joins to the MOTD variant the player's address was last shown.
+ * <p>
+ * Every ping writes one packed long into a fixed size table indexed by a hash of the address:
+ * 24 bits of address fingerprint, 8 bits of variant index and 32 bits of seconds. Slots are simply
+ * overwritten, so the ping path is a single atomic store and the memory never grows; a collision can
+ * only lose an attribution. A join claims the slot of its address with a compare-and-set, so a single
+ * impression converts at most once, and only while it is younger than the attribution window.
+ */
+public final class ConversionTracker {
+
+    static final int MAX_VARIANTS = 256; // Variant index is stored on 8 bits
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final long window; // Attribution window in seconds
+    private final long epoch = System.currentTimeMillis(); // Slot times count from here
+    private final LongAdder[] impressions;
+    private final LongAdder[] joins;
+
+    /**
+     * @param slotCount Table size, rounded up to a power of two
+     * @param window Attribution window in milliseconds
+     * @param variantCount Number of variants of the pool
+     */
+    public ConversionTracker(int slotCount, long window, int variantCount) {
+        int size = Integer.highestOneBit(Math.max(16, slotCount - 1)) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.window = Math.max(1L, window / 1000L);
+        int tracked = Math.min(variantCount, MAX_VARIANTS);
+        this.impressions = new LongAdder[tracked];
+        this.joins = new LongAdder[tracked];
+        for (int i = 0; i < tracked; i++) {
+            impressions[i] = new LongAdder();
+            joins[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records that an address was shown a variant
+     * @param address Address of the pinger
+     * @param variant Variant shown
+     */
+    public void impression(InetAddress address, MotdVariant variant) {
+        int index = variant.getIndex();
+        if (address == null || index >= impressions.length) {
+            return;
+        }
+        impressions[index].increment();
+        long hash = MotdPool.hashAddress(address);
+        slots.set((int) hash & mask, pack(hash, index, seconds()));
+    }
+
+    /**
+     * Attributes a join to the variant last shown to its address, if it was shown recently
+     * @param address Address of the joining player
+     * @return Variant index credited, -1 if none
+     */
+    public int join(InetAddress address) {
+        if (address == null) {
+            return -1;
+        }
+        long hash = MotdPool.hashAddress(address);
+        int slot = (int) hash & mask;
+        long packed = slots.get(slot);
+        if (packed == 0L || fingerprint(packed) != fingerprint(hash)
+                || seconds() - (packed & 0xFFFF_FFFFL) > window) {
+            return -1;
+        }
+        if (!slots.compareAndSet(slot, packed, 0L)) {
+            return -1; // Overwritten or claimed meanwhile
+        }
+        int index = (int) (packed >>> 32) & 0xFF;
+        joins[index].increment();
+        return index;
+    }
+
+    public long getImpressions(MotdVariant variant) {
+        return variant.getIndex() < impressions.length ? impressions[variant.getIndex()].sum() : 0L;
+    }
+
+    public long getJoins(MotdVariant variant) {
+        return variant.getIndex() < joins.length ? joins[variant.getIndex()].sum() : 0L;
+    }
+
+    /**
+     * @return Bytes held by the address table
+     */
+    public long getTableBytes() {
+        return slots.length() * 8L;
+    }
+
+    private long seconds() {
+        return (System.currentTimeMillis() - epoch) / 1000L;
+    }
+
+    // Fingerprint from the top 24 bits of the hash, the slot index comes from the low bits
+    private static long pack(long hash, int variant, long seconds) {
+        return (hash >>> 40 << 40) | ((long) variant << 32) | (seconds & 0xFFFF_FFFFL);
+    }
+
+    private static long fingerprint(long bits) {
+        return bits >>> 40;
+    }
+}
@@ -0,0 +1,156 @@
+package net.fyrxlab.solverMOTD;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+/**
+ * Five field cron expression: minute, hour, day of month, month and day of week, e.g. "0 18 * * FRI".
+ * Fields accept "*", numbers, ranges "1-5", lists "1,15" and steps "*&#47;15". Months and days of week
+ * also accept their three letter names, Sunday is 0 or 7. When both day fields are restricted, a time
+ * matches either of them, like the classic cron.
+ */
+public final class CronExpression {
+
+    private static final String[] MONTHS = {"JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"};
+    private static final String[] WEEKDAYS = {"SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT"};
+
+    // One bit per allowed value
+    private final long minutes;
+    private final long hours;
+    private final long days;
+    private final long months;
+    private final long weekdays; // Sunday is bit 0
+    private final boolean anyDay;
+    private final boolean anyWeekday;
+
+    private CronExpression(long minutes, long hours, long days, long months, long weekdays,
+                           boolean anyDay, boolean anyWeekday) {
+        this.minutes = minutes;
+        this.hours = hours;
+        this.days = days;
+        this.months = months;
+        this.weekdays = weekdays;
+        this.anyDay = anyDay;
+        this.anyWeekday = anyWeekday;
+    }
+
+    /**
+     * Parses a cron expression
+     * @param text Expression as written in config.yml
+     * @return Parsed expression
+     * @throws IllegalArgumentException If the expression is not valid
+     */
+    public static CronExpression parse(String text) {
+        String[] fields = text.trim().split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Cron expression \"" + text + "\" needs 5 fields");
+        }
+        long weekdays = parseField(fields[4], 0, 7, WEEKDAYS, 0);
+        if ((weekdays & (1L << 7)) != 0) {
+            weekdays = (weekdays | 1L) & ~(1L << 7); // 7 is Sunday too
+        }
+        return new CronExpression(
+                parseField(fields[0], 0, 59, null, 0),
+                parseField(fields[1], 0, 23, null, 0),
+                parseField(fields[2], 1, 31, null, 0),
+                parseField(fields[3], 1, 12, MONTHS, 1),
+                weekdays,
+                fields[2].equals("*"),
+                fields[4].equals("*"));
+    }
+
+    private static long parseField(String field, int min, int max, String[] names, int firstName) {
+        long bits = 0;
+        for (String part : field.split(",")) {
+            int step = 1;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = parseValue(part.substring(slash + 1), 1, max, null, 0, field);
+                part = part.substring(0, slash);
+            }
+            int from;
+            int to;
+            if (part.equals("*")) {
+                from = min;
+                to = max;
+            } else {
+                int dash = part.indexOf('-');
+                if (dash > 0) {
+                    from = parseValue(part.substring(0, dash), min, max, names, firstName, field);
+                    to = parseValue(part.substring(dash + 1), min, max, names, firstName, field);
+                } else {
+                    from = parseValue(part, min, max, names, firstName, field);
+                    to = slash >= 0 ? max : from; // "5/15" runs from 5 to the end
+                }
+            }
+            if (from > to) {
+                throw new IllegalArgumentException("Invalid range \"" + part + "\" in cron field \"" + field + "\"");
+            }
+            for (int value = from; value <= to; value += step) {
+                bits |= 1L << value;
+            }
+        }
+        return bits;
+    }
+
+    private static int parseValue(String text, int min, int max, String[] names, int firstName, String field) {
+        if (names != null) {
+            String upper = text.toUpperCase(Locale.ROOT);
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(upper)) {
+                    return i + firstName;
+                }
+            }
+        }
+        try {
+            int value = Integer.parseInt(text);
+            if (value >= min && value <= max) {
+                return value;
+            }
+        } catch (NumberFormatException ignored) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Invalid value \"" + text + "\" in cron field \"" + field + "\"");
+    }
+
+    /**
+     * Finds the first matching minute after a time
+     * @param after Time to start from, exclusive
+     * @param limit Last time to consider, inclusive
+     * @return Matching time, null if there is none up to the limit
+     */
+    public LocalDateTime next(LocalDateTime after, LocalDateTime limit) {
+        LocalDateTime time = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        // Skip whole months, days and hours that can't match instead of walking every minute
+        while (!time.isAfter(limit)) {
+            if ((months & (1L << time.getMonthValue())) == 0) {
+                time = time.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+            } else if (!matchesDay(time)) {
+                time = time.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            } else if ((hours & (1L << time.getHour())) == 0) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if ((minutes & (1L << time.getMinute())) == 0) {
+                time = time.plusMinutes(1);
+            } else {
+                return time;
+            }
+        }
+        return null;
+    }
+
+    private boolean matchesDay(LocalDateTime time) {
+        boolean day = (days & (1L << time.getDayOfMonth())) != 0;
+        boolean weekday = (weekdays & (1L << dayIndex(time.getDayOfWeek()))) != 0;
+        if (anyDay || anyWeekday) {
+            return day && weekday;
+        }
+        return day || weekday;
+    }
+
+    // Sunday first, as in cron
+    private static int dayIndex(DayOfWeek day) {
+        return day.getValue() % 7;
+    }
+}
@@ -0,0 +1,72 @@
+package net.fyrxlab.solverMOTD;
+
+import java.util.Locale;
+
+/**
+ * Parses the human readable durations used in config.yml, e.g. "500ms", "1s", "30s", "5m", "2h" or "1d".
+ * A bare number is read as seconds.
+ */
+public final class Durations {
+
+    private Durations() {
+    }
+
+    /**
+     * Parses a duration into milliseconds
+     * @param text Duration as written in config.yml
+     * @return Duration in milliseconds
+     * @throws IllegalArgumentException If the text is not a valid duration
+     */
+    public static long parse(String text) {
+        if (text == null) {
+            throw new IllegalArgumentException("Missing duration");
+        }
+        String value = text.trim().toLowerCase(Locale.ROOT);
+        int unitStart = 0;
+        while (unitStart < value.length() && (Character.isDigit(value.charAt(unitStart)) || value.charAt(unitStart) == '.')) {
+            unitStart++;
+        }
+        if (unitStart == 0) {
+            throw new IllegalArgumentException("Invalid duration: " + text);
+        }
+        double amount;
+        try {
+            amount = Double.parseDouble(value.substring(0, unitStart));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid duration: " + text);
+        }
+        String unit = value.substring(unitStart).trim();
+        switch (unit) {
+            case "ms":
+                return Math.round(amount);
+            case "":
+            case "s":
+                return Math.round(amount * 1000);
+            case "m":
+                return Math.round(amount * 60_000);
+            case "h":
+                return Math.round(amount * 3_600_000);
+            case "d":
+                return Math.round(amount * 86_400_000);
+            default:
+                throw new IllegalArgumentException("Unknown duration unit '" + unit + "' in: " + text);
+        }
+    }
+
+    /**
+     * Parses a duration, falling back to a default when the text is missing or invalid
+     * @param text Duration as written in config.yml, may be null
+     * @param fallback Value returned when the text can't be parsed
+     * @return Duration in milliseconds
+     */
+    public static long parse(String text, long fallback) {
+        if (text == null) {
+            return fallback;
+        }
+        try {
+            return parse(text);
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package net.fyrxlab.solverMOTD;
+
+import java.util.Arrays;
+
+/**
+ * Pixel widths of the Minecraft default font, used to center MOTD lines.
+ * Widths include the 1px gap after every glyph; bold glyphs are 1px wider.
+ */
+public final class FontWidths {
+
+    // Width available to a MOTD line in the server list
+    public static final int MOTD_WIDTH = 270;
+
+    private static final int DEFAULT_WIDTH = 6;
+    private static final int[] ASCII = new int[128];
+
+    static {
+        Arrays.fill(ASCII, DEFAULT_WIDTH);
+        set(" ", 4);
+        set("!',.:;i|", 2);
+        set("`l", 3);
+        set("\"I[]t", 4);
+        set("()*<>fk{}", 5);
+        set("@~", 7);
+    }
+
+    private FontWidths() {
+    }
+
+    private static void set(String chars, int width) {
+        for (int i = 0; i < chars.length(); i++) {
+            ASCII[chars.charAt(i)] = width;
+        }
+    }
+
+    /**
+     * Measures a § formatted text
+     * @param text Text holding the range
+     * @param start First char, inclusive
+     * @param end Last char, exclusive
+     * @param bold Whether the text starts bold
+     * @return Width in pixels
+     */
+    public static int width(CharSequence text, int start, int end, boolean bold) {
+        int width = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '§' && i + 1 < end) {
+                bold = applyCode(text.charAt(++i), bold);
+                continue;
+            }
+            width += (c < 128 ? ASCII[c] : DEFAULT_WIDTH) + (bold ? 1 : 0);
+        }
+        return width;
+    }
+
+    /**
+     * Follows the formatting codes of a text
+     * @param text Text holding the range
+     * @param start First char, inclusive
+     * @param end Last char, exclusive
+     * @param bold Whether the text starts bold
+     * @return Whether the text ends bold
+     */
+    public static boolean boldAfter(CharSequence text, int start, int end, boolean bold) {
+        for (int i = start; i + 1 < end; i++) {
+            if (text.charAt(i) == '§') {
+                bold = applyCode(text.charAt(++i), bold);
+            }
+        }
+        return bold;
+    }
+
+    /**
+     * @param text § formatted text
+     * @return Whether the text ends with a § whose code would be the first char of what follows it,
+     * such a text can't be measured on its own
+     */
+    public static boolean endsInsideCode(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '§') {
+                if (i + 1 == text.length()) {
+                    return true;
+                }
+                i++;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param bold Whether the following text is bold
+     * @return Width of a space in pixels
+     */
+    public static int spaceWidth(boolean bold) {
+        return ASCII[' '] + (bold ? 1 : 0);
+    }
+
+    // Colors and reset end bold, §l starts it, other formats keep it
+    private static boolean applyCode(char code, boolean bold) {
+        char lower = Character.toLowerCase(code);
+        if (lower == 'l') {
+            return true;
+        }
+        if (lower == 'r' || lower == 'x' || Character.digit(lower, 16) >= 0) {
+            return false;
+        }
+        return bold;
+    }
+}
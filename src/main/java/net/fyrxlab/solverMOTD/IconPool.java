@@ -0,0 +1,142 @@
+package net.fyrxlab.solverMOTD;
+
+import org.bukkit.Server;
+import org.bukkit.util.CachedServerIcon;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Server icons of every variant, decoded and validated once per reload on an async task.
+ * The ping handler only picks one of the preloaded {@link CachedServerIcon} handles.
+ */
+public final class IconPool {
+
+    static final int ICON_SIZE = 64; // The client only accepts 64x64 icons
+
+    private final CachedServerIcon[][] icons; // By variant index, empty when the variant sets no icon
+    private final long[] intervals; // Milliseconds each icon of a variant is shown
+    private final int count; // Distinct icons loaded
+    private final long bytes; // Estimated memory held by the encoded icons
+
+    private IconPool(CachedServerIcon[][] icons, long[] intervals, int count, long bytes) {
+        this.icons = icons;
+        this.intervals = intervals;
+        this.count = count;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Loads the icons named by the variants from the icons folder. Images that can't be read or
+     * aren't 64x64 are refused with a warning. Meant to run on an async task.
+     * @param variants Variants of the pool, by index
+     * @param folder The "icons" folder of the plugin
+     * @param server Server turning the images into icon handles
+     * @param logger Logger used to report refused images and the memory used
+     * @return Loaded icons
+     */
+    public static IconPool load(MotdVariant[] variants, File folder, Server server, Logger logger) {
+        Map<String, CachedServerIcon> loaded = new HashMap<>();
+        long bytes = 0;
+        CachedServerIcon[][] icons = new CachedServerIcon[variants.length][];
+        long[] intervals = new long[variants.length];
+        for (MotdVariant variant : variants) {
+            List<CachedServerIcon> handles = new ArrayList<>();
+            for (String name : variant.getIconNames()) {
+                if (!loaded.containsKey(name)) {
+                    File file = new File(folder, name);
+                    CachedServerIcon icon = loadIcon(file, folder, server, logger);
+                    loaded.put(name, icon); // Refused icons are remembered too, they are only reported once
+                    if (icon != null) {
+                        // The server keeps the PNG as a Base64 data URI: 4 chars per 3 bytes, one byte per char
+                        bytes += (file.length() + 2) / 3 * 4;
+                    }
+                }
+                if (loaded.get(name) != null) {
+                    handles.add(loaded.get(name));
+                }
+            }
+            icons[variant.getIndex()] = handles.toArray(new CachedServerIcon[0]);
+            intervals[variant.getIndex()] = Math.max(1L, variant.getIconInterval());
+        }
+        // Variants without icons of their own use the ones of the default MOTD
+        for (int i = 1; i < icons.length; i++) {
+            if (icons[i].length == 0) {
+                icons[i] = icons[0];
+                intervals[i] = intervals[0];
+            }
+        }
+        int count = 0;
+        for (CachedServerIcon icon : loaded.values()) {
+            if (icon != null) {
+                count++;
+            }
+        }
+        if (count > 0) {
+            logger.info("Loaded " + count + " server icon(s), using about " + (bytes + 1023) / 1024 + " KB.");
+        }
+        return new IconPool(icons, intervals, count, bytes);
+    }
+
+    private static CachedServerIcon loadIcon(File file, File folder, Server server, Logger logger) {
+        try {
+            if (!file.getCanonicalPath().startsWith(folder.getCanonicalPath() + File.separator)) {
+                logger.warning("Server icon " + file.getName() + " is outside the icons folder, skipping it.");
+                return null;
+            }
+            if (!file.isFile()) {
+                logger.warning("Server icon " + file.getName() + " doesn't exist in the icons folder.");
+                return null;
+            }
+            BufferedImage image = ImageIO.read(file);
+            if (image == null) {
+                logger.warning("Server icon " + file.getName() + " is not a readable image.");
+                return null;
+            }
+            if (image.getWidth() != ICON_SIZE || image.getHeight() != ICON_SIZE) {
+                logger.warning("Server icon " + file.getName() + " is " + image.getWidth() + "x" + image.getHeight()
+                        + ", server icons must be " + ICON_SIZE + "x" + ICON_SIZE + ".");
+                return null;
+            }
+            return server.loadServerIcon(image);
+        } catch (IOException e) {
+            logger.warning("Error while reading server icon " + file.getName() + ": " + e.getMessage());
+        } catch (Exception e) {
+            logger.warning("Server icon " + file.getName() + " was refused by the server: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Picks the icon shown with a variant
+     * @param variant Variant picked for the ping
+     * @param now Current time in milliseconds
+     * @return Icon, null to keep the server icon
+     */
+    public CachedServerIcon pick(MotdVariant variant, long now) {
+        CachedServerIcon[] handles = icons[variant.getIndex()];
+        switch (handles.length) {
+            case 0:
+                return null;
+            case 1:
+                return handles[0];
+            default:
+                return handles[(int) ((now / intervals[variant.getIndex()]) % handles.length)];
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+}
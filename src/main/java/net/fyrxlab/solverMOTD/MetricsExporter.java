@@ -0,0 +1,276 @@
+package net.fyrxlab.solverMOTD;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Serves the ping path metrics in the Prometheus text format on "/metrics", using the HTTP server
+ * built into the JDK.
+ * <p>
+ * Scrapes are answered one at a time on the server's dispatcher thread. The response is written
+ * straight from the live counters into one reused byte buffer, numbers digit by digit and names from
+ * constants, so a scrape allocates nothing per metric. Latency histograms are exported with one
+ * bucket per power of two of nanoseconds, the edges of {@link PingStats} buckets being exact there.
+ */
+public final class MetricsExporter implements HttpHandler {
+
+    private static final int FIRST_EDGE = 7; // Smallest exported bucket edge: 2^7 ns
+    private static final int NANOS_DIGITS = 9; // Seconds are written with nanosecond precision
+    private static final String[] RENDER_KINDS = {"all", "cache_miss", "prerendered"};
+    private static final int[] RENDER_COUNTERS = {PingStats.RENDERS, PingStats.FULL_RENDERS, PingStats.STATIC_RENDERS};
+
+    private final HttpServer server;
+    private final Supplier<PingStats> stats;
+    private final Supplier<MotdPool> pool;
+    private byte[] buffer = new byte[16 * 1024]; // Grown once to the size of a full response
+    private int length;
+
+    private MetricsExporter(HttpServer server, Supplier<PingStats> stats, Supplier<MotdPool> pool) {
+        this.server = server;
+        this.stats = stats;
+        this.pool = pool;
+    }
+
+    /**
+     * Binds the endpoint and starts serving
+     * @param address Interface to listen on, e.g. "127.0.0.1"
+     * @param port Port to listen on
+     * @param stats Current stats, may supply null when stats are disabled
+     * @param pool Current MOTD pool, may supply null while enabling
+     * @return Running exporter
+     * @throws IOException If the address can't be bound
+     */
+    public static MetricsExporter start(String address, int port, Supplier<PingStats> stats,
+                                        Supplier<MotdPool> pool) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        MetricsExporter exporter = new MetricsExporter(server, stats, pool);
+        server.createContext("/metrics", exporter);
+        server.setExecutor(null); // The dispatcher thread answers, scrapes never overlap
+        server.start();
+        return exporter;
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            length = 0;
+            writeMetrics();
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(buffer, 0, length);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void writeMetrics() {
+        PingStats current = stats.get();
+        if (current != null) {
+            type("solvermotd_pings_total", "counter");
+            sample("solvermotd_pings_total", current.getTotal(PingStats.PINGS));
+            type("solvermotd_throttled_pings_total", "counter");
+            sample("solvermotd_throttled_pings_total", current.getTotal(PingStats.THROTTLED));
+            type("solvermotd_papi_calls_total", "counter");
+            sample("solvermotd_papi_calls_total", current.getTotal(PingStats.PAPI_CALLS));
+
+            // Average over the last full minute, rate() over the counter is usually preferable
+            PingStats.Window minute = current.getMinute();
+            if (minute != null) {
+                type("solvermotd_ping_rate", "gauge");
+                append("solvermotd_ping_rate ");
+                appendScaled(minute.getCount(PingStats.PINGS) * 1000L / 60L, 3);
+                append('\n');
+            }
+
+            type("solvermotd_renders_total", "counter");
+            for (MotdTemplate.RenderMode mode : MotdTemplate.RenderMode.values()) {
+                for (int i = 0; i < RENDER_KINDS.length; i++) {
+                    append("solvermotd_renders_total{mode=\"");
+                    append(mode == MotdTemplate.RenderMode.LEGACY ? "legacy" : "minimessage");
+                    append("\",kind=\"");
+                    append(RENDER_KINDS[i]);
+                    append("\"} ");
+                    appendLong(current.getTotal(RENDER_COUNTERS[i] + mode.ordinal()));
+                    append('\n');
+                }
+            }
+
+            type("solvermotd_stage_duration_seconds", "histogram");
+            for (int stage = 0; stage < PingStats.STAGE_NAMES.length; stage++) {
+                writeHistogram(current, stage);
+            }
+        }
+
+        MotdPool motd = pool.get();
+        if (motd != null) {
+            writeCaches(motd);
+        }
+    }
+
+    private void writeHistogram(PingStats current, int stage) {
+        String name = PingStats.STAGE_NAMES[stage];
+        long cumulative = 0;
+        int bucket = 0;
+        for (int edge = FIRST_EDGE; edge <= PingStats.MAX_EXPONENT; edge++) {
+            // Buckets below the one starting at 2^edge hold every value under 2^edge
+            int end = PingStats.bucket(1L << edge);
+            for (; bucket < end; bucket++) {
+                cumulative += current.getBucketCount(stage, bucket);
+            }
+            append("solvermotd_stage_duration_seconds_bucket{stage=\"");
+            append(name);
+            append("\",le=\"");
+            appendScaled(1L << edge, NANOS_DIGITS);
+            append("\"} ");
+            appendLong(cumulative);
+            append('\n');
+        }
+        for (; bucket < PingStats.BUCKETS; bucket++) {
+            cumulative += current.getBucketCount(stage, bucket);
+        }
+        append("solvermotd_stage_duration_seconds_bucket{stage=\"");
+        append(name);
+        append("\",le=\"+Inf\"} ");
+        appendLong(cumulative);
+        append("\nsolvermotd_stage_duration_seconds_sum{stage=\"");
+        append(name);
+        append("\"} ");
+        appendScaled(current.getSum(stage), NANOS_DIGITS);
+        append("\nsolvermotd_stage_duration_seconds_count{stage=\"");
+        append(name);
+        append("\"} ");
+        appendLong(cumulative);
+        append('\n');
+    }
+
+    // Render cache hits and misses per variant, summed over its frames, and the overall hit ratio
+    private void writeCaches(MotdPool motd) {
+        long hits = 0;
+        long misses = 0;
+        type("solvermotd_render_cache_hits_total", "counter");
+        for (MotdVariant variant : motd.getVariants()) {
+            long variantHits = 0;
+            for (int frame = 0; frame < variant.getFrameCount(); frame++) {
+                variantHits += variant.getFrameAt(frame).getCache().getHits();
+            }
+            hits += variantHits;
+            variantSample("solvermotd_render_cache_hits_total", variant, variantHits);
+        }
+        type("solvermotd_render_cache_misses_total", "counter");
+        for (MotdVariant variant : motd.getVariants()) {
+            long variantMisses = 0;
+            for (int frame = 0; frame < variant.getFrameCount(); frame++) {
+                variantMisses += variant.getFrameAt(frame).getCache().getMisses();
+            }
+            misses += variantMisses;
+            variantSample("solvermotd_render_cache_misses_total", variant, variantMisses);
+        }
+        type("solvermotd_render_cache_hit_ratio", "gauge");
+        append("solvermotd_render_cache_hit_ratio ");
+        appendScaled(hits + misses == 0 ? 0L : hits * 1_000_000L / (hits + misses), 6);
+        append('\n');
+    }
+
+    private void variantSample(String metric, MotdVariant variant, long value) {
+        append(metric);
+        append("{variant=\"");
+        String name = variant.getName();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '\\' || c == '"') {
+                append('\\');
+            }
+            append(c == '\n' ? ' ' : c);
+        }
+        append("\"} ");
+        appendLong(value);
+        append('\n');
+    }
+
+    private void type(String metric, String type) {
+        append("# TYPE ");
+        append(metric);
+        append(' ');
+        append(type);
+        append('\n');
+    }
+
+    private void sample(String metric, long value) {
+        append(metric);
+        append(' ');
+        appendLong(value);
+        append('\n');
+    }
+
+    private void append(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            append(text.charAt(i));
+        }
+    }
+
+    // UTF-8 encodes the character, variant names may hold any text
+    private void append(char c) {
+        if (length + 3 > buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        if (c < 0x80) {
+            buffer[length++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[length++] = (byte) (0xC0 | c >> 6);
+            buffer[length++] = (byte) (0x80 | c & 0x3F);
+        } else {
+            buffer[length++] = (byte) (0xE0 | c >> 12);
+            buffer[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+            buffer[length++] = (byte) (0x80 | c & 0x3F);
+        }
+    }
+
+    private void appendLong(long value) {
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        long divisor = 1;
+        while (divisor <= value / 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            append((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    // Writes value / 10^decimals with every decimal, e.g. nanoseconds as seconds
+    private void appendScaled(long value, int decimals) {
+        long scale = 1;
+        for (int i = 0; i < decimals; i++) {
+            scale *= 10;
+        }
+        appendLong(value / scale);
+        append('.');
+        long fraction = Math.abs(value % scale);
+        for (long digit = scale / 10; digit > 0; digit /= 10) {
+            append((char) ('0' + fraction / digit % 10));
+        }
+    }
+}
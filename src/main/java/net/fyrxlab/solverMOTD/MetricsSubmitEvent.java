@@ -0,0 +1,28 @@
+package net.fyrxlab.solverMOTD;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of one bStats submission.
+ */
+@Name("solvermotd.MetricsSubmit")
+@Label("bStats Submission")
+@Category("SolverMOTD")
+@Description("Usage data sent to bStats, every 30 minutes")
+@StackTrace(false)
+public final class MetricsSubmitEvent extends Event {
+
+    @Label("Bytes Sent")
+    @Description("Size of the gzip compressed request")
+    @DataAmount
+    public long bytesSent;
+
+    @Label("Success")
+    public boolean success;
+}
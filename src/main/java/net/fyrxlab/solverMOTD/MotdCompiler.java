@@ -0,0 +1,460 @@
+package net.fyrxlab.solverMOTD;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Logger;
+
+/**
+ * Compiles config.yml into a {@link MotdPool} of {@link MotdTemplate}s.
+ * Holds the settings shared by every template so they are only read once per reload.
+ */
+public final class MotdCompiler {
+
+    // Defaults used when config.yml is missing a line
+    static final String DEFAULT_LINE1 = "&a&lSolver&c&lMOTD &3Plugin &2[1.8 - 1.21] &4❤";
+    static final String DEFAULT_LINE2 = "&aSetup your &eConfig.yml &afile!";
+
+    // Name of the variant compiled from the "motd" section
+    static final String DEFAULT_VARIANT = "default";
+
+    // Name of the variant compiled from the "maintenance" section
+    static final String MAINTENANCE_VARIANT = "maintenance";
+
+    // Time each frame of an animated MOTD is shown when "frame_interval" is missing
+    static final long DEFAULT_FRAME_INTERVAL = 1000L;
+
+    // Addresses remembered by the conversion tracker, and how long a ping can still be credited with a join
+    static final int DEFAULT_TRACKING_SLOTS = 65536;
+    static final long DEFAULT_TRACKING_WINDOW = 10 * 60 * 1000L;
+
+    // Token buckets of the ping rate limiter: pings allowed per address in a burst, and how long they take to come back
+    static final int DEFAULT_RATE_LIMIT_SLOTS = 16384;
+    static final int DEFAULT_RATE_LIMIT_PINGS = 10;
+    static final long DEFAULT_RATE_LIMIT_PERIOD = 10 * 1000L;
+
+    // Analytics window, Count-Min counters per row and number of heaviest pingers listed
+    static final long DEFAULT_ANALYTICS_WINDOW = 60 * 60 * 1000L;
+    static final int DEFAULT_ANALYTICS_WIDTH = 4096;
+    static final int DEFAULT_ANALYTICS_TOP = 10;
+
+    // Time each server icon is shown when "icon_interval" is missing
+    static final long DEFAULT_ICON_INTERVAL = 5000L;
+
+    private final ConfigurationSection config;
+    private final MotdTemplate.RenderMode mode;
+    private final boolean usePapi;
+    private final Map<String, NativePlaceholder> natives;
+    private final ReturningPlayers returning;
+    private final ColorFormatter formatter;
+    private final ExecutorService executor;
+    private final PingStats stats;
+    private final Logger logger;
+
+    /**
+     * @param config Root section of config.yml
+     * @param papiEnabled Whether PlaceholderAPI is installed and enabled
+     * @param natives Native placeholders available to the MOTD, by name
+     * @param returning Last player seen per address, kept across reloads, null when disabled
+     * @param executor Executor running the PlaceholderAPI calls of the refresher
+     * @param stats Stats the compiled templates and refresher report to, null when disabled
+     * @param bukkitVersion Server version, decides whether hex colors are kept
+     * @param logger Logger used to report what the compiled MOTD costs
+     */
+    public MotdCompiler(ConfigurationSection config, boolean papiEnabled, Map<String, NativePlaceholder> natives,
+                        ReturningPlayers returning, ExecutorService executor, PingStats stats, String bukkitVersion,
+                        Logger logger) {
+        this.config = config;
+        this.mode = config.getBoolean("use_minimessage", false)
+                ? MotdTemplate.RenderMode.MINIMESSAGE : MotdTemplate.RenderMode.LEGACY;
+        this.usePapi = papiEnabled && config.getBoolean("use_papi", true);
+        this.natives = natives;
+        this.returning = returning;
+        this.formatter = ColorFormatter.forSetting(config.getString("hex_colors", "auto"), bukkitVersion);
+        this.executor = executor;
+        this.stats = stats;
+        this.logger = logger;
+    }
+
+    /**
+     * Compiles the default MOTD and every variant of the rotation
+     * @return Compiled pool, sharing one placeholder refresher
+     */
+    public MotdPool compile() {
+        // One registry for every variant, a placeholder used by several of them is only resolved once
+        PlaceholderRegistry registry = new PlaceholderRegistry(natives, usePapi);
+        List<MotdVariant> variants = new ArrayList<>();
+        ConfigurationSection defaultSection = config.isConfigurationSection("motd")
+                ? config.getConfigurationSection("motd") : new MemoryConfiguration();
+        // The default MOTD stays out of the rotation as soon as variants exist, it serves as the fallback
+        MotdVariant fallback = compileVariant(DEFAULT_VARIANT, 0, 0, defaultSection, "MOTD", registry);
+        variants.add(fallback);
+        // Compiled on every reload, so switching maintenance on is only a flag change
+        ConfigurationSection maintenanceSection = config.isConfigurationSection("maintenance")
+                ? config.getConfigurationSection("maintenance") : new MemoryConfiguration();
+        MotdVariant maintenance = compileVariant(MAINTENANCE_VARIANT, 1, 0, maintenanceSection,
+                "Maintenance MOTD", registry);
+        variants.add(maintenance);
+
+        List<Map<?, ?>> entries = config.getMapList("motds");
+        for (int i = 0; i < entries.size(); i++) {
+            ConfigurationSection section = new MemoryConfiguration().createSection("variant", entries.get(i));
+            String name = section.getString("name", "variant-" + (i + 1));
+            if (findVariant(variants, name) != null) {
+                logger.warning("MOTD variant name \"" + name + "\" is already used, skipping entry " + (i + 1) + ".");
+                continue;
+            }
+            double weight = section.getDouble("weight", 1.0);
+            if (weight < 0 || Double.isNaN(weight) || Double.isInfinite(weight)) {
+                logger.warning("MOTD variant \"" + name + "\" has an invalid weight, using 1.");
+                weight = 1.0;
+            }
+            variants.add(compileVariant(name, variants.size(), weight, section,
+                    "MOTD variant \"" + name + "\"", registry));
+        }
+
+        MotdRule[] rules = compileRules(variants, registry);
+        MotdSchedule schedule = compileSchedule(variants);
+        CidrTrie targets = compileTargets(variants);
+        MotdVariant returningVariant = null;
+        if (config.getBoolean("returning.enabled", false)) {
+            String name = config.getString("returning.motd", "");
+            returningVariant = findVariant(variants, name);
+            if (returningVariant == null && !name.isEmpty()) {
+                logger.warning("Returning player MOTD \"" + name + "\" is not a MOTD variant, ignoring it.");
+            }
+        }
+        PlaceholderRefresher refresher = PlaceholderRefresher.create(registry,
+                config.getConfigurationSection("placeholders"), executor, stats, logger);
+        MotdPool.RotationMode rotation = MotdPool.RotationMode.parse(config.getString("rotation.mode", "random"));
+        if (variants.size() > 2) {
+            logger.info("Rotating " + (variants.size() - 2) + " MOTD variant(s), mode " + rotation + ".");
+        }
+        return new MotdPool(variants.toArray(new MotdVariant[0]), fallback, maintenance,
+                maintenanceSection.getInt("max_players", -1), rules, schedule, targets, returning, returningVariant, rotation, refresher,
+                compileTracker(variants.size()), compileLimiter(), compileThrottledMotd(),
+                compileAnalytics());
+    }
+
+    /**
+     * Creates the ping rate limiter from the "rate_limit" section
+     * @return Limiter, null when rate limiting is disabled
+     */
+    private RateLimiter compileLimiter() {
+        if (!config.getBoolean("rate_limit.enabled", false)) {
+            return null;
+        }
+        int pings = config.getInt("rate_limit.pings", DEFAULT_RATE_LIMIT_PINGS);
+        long period = Durations.parse(config.getString("rate_limit.period"), DEFAULT_RATE_LIMIT_PERIOD);
+        if (pings < 1 || period <= 0) {
+            logger.warning("Ping rate limit needs at least 1 ping per period, using " + DEFAULT_RATE_LIMIT_PINGS
+                    + " per " + DEFAULT_RATE_LIMIT_PERIOD + "ms.");
+            pings = DEFAULT_RATE_LIMIT_PINGS;
+            period = DEFAULT_RATE_LIMIT_PERIOD;
+        }
+        RateLimiter limiter = new RateLimiter(config.getInt("rate_limit.slots", DEFAULT_RATE_LIMIT_SLOTS), pings, period);
+        logger.info("Limiting pings to " + pings + " per " + period + "ms per address, "
+                + limiter.getTableBytes() / 1024 + " KB of buckets.");
+        return limiter;
+    }
+
+    /**
+     * Creates the ping analytics from the "analytics" section, they start over on every reload
+     * @return Analytics, null when disabled
+     */
+    private PingAnalytics compileAnalytics() {
+        if (!config.getBoolean("analytics.enabled", true)) {
+            return null;
+        }
+        long window = Durations.parse(config.getString("analytics.window"), DEFAULT_ANALYTICS_WINDOW);
+        PingAnalytics analytics = new PingAnalytics(window, config.getInt("analytics.width", DEFAULT_ANALYTICS_WIDTH),
+                config.getInt("analytics.top", DEFAULT_ANALYTICS_TOP));
+        logger.info("Ping analytics use " + analytics.getSketchBytes() / 1024 + " KB of sketches.");
+        return analytics;
+    }
+
+    /**
+     * Renders the MOTD of throttled pings once. Placeholders are never resolved for it, they stay as written.
+     * @return Rendered MOTD
+     */
+    private String compileThrottledMotd() {
+        ConfigurationSection section = config.isConfigurationSection("rate_limit")
+                ? config.getConfigurationSection("rate_limit") : new MemoryConfiguration();
+        // An empty registry leaves every placeholder as plain text, so the template is static
+        PlaceholderRegistry registry = new PlaceholderRegistry(Collections.emptyMap(), false);
+        return compileTemplate(section, "Throttled MOTD", registry, false).render(null, null);
+    }
+
+    /**
+     * Creates the conversion tracker from the "tracking" section, counters start over on every reload
+     * @param variantCount Number of compiled variants
+     * @return Tracker, null when tracking is disabled
+     */
+    private ConversionTracker compileTracker(int variantCount) {
+        if (!config.getBoolean("tracking.enabled", true)) {
+            return null;
+        }
+        if (variantCount > ConversionTracker.MAX_VARIANTS) {
+            logger.warning("Only the first " + ConversionTracker.MAX_VARIANTS + " MOTD variants are tracked.");
+        }
+        long window = Durations.parse(config.getString("tracking.window"), DEFAULT_TRACKING_WINDOW);
+        return new ConversionTracker(config.getInt("tracking.slots", DEFAULT_TRACKING_SLOTS), window, variantCount);
+    }
+
+    /**
+     * Compiles the "targets" list into one trie, an invalid range or an unknown variant is skipped
+     * @param variants Compiled variants, targets refer to them by name
+     * @return Trie of address ranges to variant index
+     */
+    private CidrTrie compileTargets(List<MotdVariant> variants) {
+        CidrTrie.Builder builder = new CidrTrie.Builder();
+        List<Map<?, ?>> entries = config.getMapList("targets");
+        for (int i = 0; i < entries.size(); i++) {
+            ConfigurationSection section = new MemoryConfiguration().createSection("target", entries.get(i));
+            MotdVariant variant = findVariant(variants, section.getString("motd"));
+            if (variant == null) {
+                logger.warning("Target " + (i + 1) + " needs the name of a MOTD variant in \"motd\", skipping it.");
+                continue;
+            }
+            for (String range : section.getStringList("ranges")) {
+                try {
+                    builder.add(range, variant.getIndex());
+                } catch (IllegalArgumentException e) {
+                    logger.warning("Target " + (i + 1) + ": " + e.getMessage() + ", skipping it.");
+                }
+            }
+        }
+        CidrTrie targets = builder.build();
+        if (builder.getRangeCount() > 0) {
+            logger.info("Compiled " + builder.getRangeCount() + " target range(s) into " + targets.getNodeCount()
+                    + " trie node(s).");
+        }
+        return targets;
+    }
+
+    /**
+     * Compiles the "schedule" section, a window with invalid times or an unknown variant is skipped
+     * @param variants Compiled variants, windows refer to them by name
+     * @return Schedule, empty when the section is missing
+     */
+    private MotdSchedule compileSchedule(List<MotdVariant> variants) {
+        ZoneId zone = ZoneId.systemDefault();
+        String zoneName = config.getString("schedule.timezone", "default");
+        if (!zoneName.equalsIgnoreCase("default")) {
+            try {
+                zone = ZoneId.of(zoneName);
+            } catch (DateTimeException e) {
+                logger.warning("Unknown schedule timezone \"" + zoneName + "\", using " + zone + ".");
+            }
+        }
+        List<MotdSchedule.Window> windows = new ArrayList<>();
+        List<Map<?, ?>> entries = config.getMapList("schedule.windows");
+        for (int i = 0; i < entries.size(); i++) {
+            ConfigurationSection section = new MemoryConfiguration().createSection("window", entries.get(i));
+            MotdVariant variant = findVariant(variants, section.getString("motd"));
+            if (variant == null) {
+                logger.warning("Schedule window " + (i + 1) + " needs the name of a MOTD variant in \"motd\", skipping it.");
+                continue;
+            }
+            try {
+                if (section.isSet("cron")) {
+                    long duration = Durations.parse(section.getString("duration"));
+                    if (duration <= 0) {
+                        throw new IllegalArgumentException("The duration must be positive");
+                    }
+                    windows.add(MotdSchedule.recurring(variant, CronExpression.parse(section.getString("cron")), duration));
+                } else {
+                    long start = section.isSet("from") ? parseTime(section.getString("from"), zone) : Long.MIN_VALUE;
+                    long end = section.isSet("until") ? parseTime(section.getString("until"), zone) : Long.MAX_VALUE;
+                    if (start >= end) {
+                        throw new IllegalArgumentException("\"from\" must be before \"until\"");
+                    }
+                    windows.add(MotdSchedule.absolute(variant, start, end));
+                }
+            } catch (IllegalArgumentException | DateTimeException e) {
+                logger.warning("Schedule window " + (i + 1) + " is invalid, skipping it: " + e.getMessage());
+            }
+        }
+        if (!windows.isEmpty()) {
+            logger.info("Scheduled " + windows.size() + " MOTD window(s) in " + zone + ".");
+        }
+        return new MotdSchedule(windows.toArray(new MotdSchedule.Window[0]), zone);
+    }
+
+    /**
+     * Parses an absolute time, "2025-12-24 18:00", "2025-12-24T18:00:30" or a whole day "2025-12-24"
+     * @param text Time as written in config.yml
+     * @param zone Timezone of the time
+     * @return Time in milliseconds
+     */
+    static long parseTime(String text, ZoneId zone) {
+        String value = text.trim();
+        LocalDateTime time = value.length() <= 10
+                ? LocalDate.parse(value).atStartOfDay()
+                : LocalDateTime.parse(value.replace(' ', 'T'));
+        return time.atZone(zone).toInstant().toEpochMilli();
+    }
+
+    private static MotdVariant findVariant(List<MotdVariant> variants, String name) {
+        for (MotdVariant variant : variants) {
+            if (variant.getName().equals(name)) {
+                return variant;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compiles the "rules" list, a rule with an invalid condition or an unknown variant is skipped
+     * @param variants Compiled variants, rules refer to them by name
+     * @param registry Registry receiving the placeholders read by the conditions
+     * @return Rules in config order
+     */
+    private MotdRule[] compileRules(List<MotdVariant> variants, PlaceholderRegistry registry) {
+        List<MotdRule> rules = new ArrayList<>();
+        List<Map<?, ?>> entries = config.getMapList("rules");
+        for (int i = 0; i < entries.size(); i++) {
+            ConfigurationSection section = new MemoryConfiguration().createSection("rule", entries.get(i));
+            String condition = section.getString("when");
+            String target = section.getString("motd");
+            MotdVariant variant = findVariant(variants, target);
+            if (condition == null || variant == null) {
+                logger.warning("Rule " + (i + 1) + " needs a \"when\" condition and the name of a MOTD variant"
+                        + " in \"motd\", skipping it.");
+                continue;
+            }
+            try {
+                rules.add(new MotdRule(condition, RuleExpression.compile(condition, registry), variant));
+            } catch (IllegalArgumentException e) {
+                logger.warning("Rule " + (i + 1) + " is invalid, skipping it: " + e.getMessage());
+            }
+        }
+        return rules.toArray(new MotdRule[0]);
+    }
+
+    /**
+     * Compiles a MOTD section, animated when it has a "frames" list
+     * @param name Variant name
+     * @param index Position in the pool
+     * @param weight Rotation weight
+     * @param section Section holding "line1" and "line2", or "frames" and "frame_interval", and its icons
+     * @param label Name of the MOTD in log messages
+     * @param registry Registry shared by every variant
+     * @return Compiled variant
+     */
+    private MotdVariant compileVariant(String name, int index, double weight, ConfigurationSection section,
+                                       String label, PlaceholderRegistry registry) {
+        // "icon: spawn.png" or "icons: [a.png, b.png]" rotating every "icon_interval"
+        List<String> iconList = section.isList("icons")
+                ? new ArrayList<>(section.getStringList("icons")) : new ArrayList<>();
+        if (section.isString("icon")) {
+            iconList.add(0, section.getString("icon"));
+        }
+        String[] icons = iconList.toArray(new String[0]);
+        long iconInterval = Durations.parse(section.getString("icon_interval"), DEFAULT_ICON_INTERVAL);
+
+        List<Map<?, ?>> entries = section.getMapList("frames");
+        if (entries.isEmpty()) {
+            MotdTemplate template = compileTemplate(section, label, registry, true);
+            return new MotdVariant(name, index, weight, new MotdTemplate[]{template}, DEFAULT_FRAME_INTERVAL,
+                    icons, iconInterval);
+        }
+        // Every frame is compiled now, a frame without placeholders is a fully rendered string
+        MotdTemplate[] frames = new MotdTemplate[entries.size()];
+        int prerendered = 0;
+        for (int i = 0; i < frames.length; i++) {
+            ConfigurationSection frame = new MemoryConfiguration().createSection("frame", entries.get(i));
+            frames[i] = compileTemplate(frame, label + " frame " + (i + 1), registry, false);
+            if (frames[i].isStatic()) {
+                prerendered++;
+            }
+        }
+        long interval = Durations.parse(section.getString("frame_interval"), DEFAULT_FRAME_INTERVAL);
+        logger.info(label + " animates " + frames.length + " frame(s) every " + interval + "ms, "
+                + prerendered + " pre-rendered.");
+        return new MotdVariant(name, index, weight, frames, interval, icons, iconInterval);
+    }
+
+    /**
+     * Compiles the two lines of a MOTD section
+     * @param section Section holding "line1" and "line2"
+     * @param label Name of the MOTD in log messages
+     * @param registry Registry shared by every variant
+     * @param report Whether the placeholder count of every line is logged
+     * @return Compiled template
+     */
+    private MotdTemplate compileTemplate(ConfigurationSection section, String label, PlaceholderRegistry registry,
+                                         boolean report) {
+        String[] paths = {"line1", "line2"};
+        String[] defaults = {DEFAULT_LINE1, DEFAULT_LINE2};
+        MotdLine[] lines = new MotdLine[paths.length];
+        boolean[] centered = new boolean[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            centered[i] = isCentered(section, paths[i]);
+            String text = lineText(section, paths[i], defaults[i]);
+            // Centering replaces the hand made padding
+            lines[i] = MotdLine.parse(centered[i] ? text.trim() : text, registry);
+            if (report) {
+                logger.info(label + " line " + (i + 1) + " uses " + lines[i].getPlaceholderCount() + " placeholder(s)"
+                        + (lines[i].isStatic() ? ", pre-rendered." : "."));
+            }
+        }
+        MotdTemplate template = new MotdTemplate(mode, lines, centered, registry, formatter, stats);
+        if (template.isParsedPerRender()) {
+            logger.warning("A placeholder is used inside a MiniMessage tag or gradient in " + label
+                    + ", it will be parsed on every render.");
+        }
+        warnOverflow(template, lines, label);
+        return template;
+    }
+
+    /**
+     * Reads a line written either as a plain string or as a section with "text" and "align"
+     * @param section Section holding the line
+     * @param path Path of the line
+     * @param fallback Text used when the line is missing
+     * @return Raw line text
+     */
+    static String lineText(ConfigurationSection section, String path, String fallback) {
+        if (section.isConfigurationSection(path)) {
+            return section.getConfigurationSection(path).getString("text", fallback);
+        }
+        return section.getString(path, fallback);
+    }
+
+    static boolean isCentered(ConfigurationSection section, String path) {
+        return section.isConfigurationSection(path)
+                && "center".equalsIgnoreCase(section.getConfigurationSection(path).getString("align", "left"));
+    }
+
+    // Lines wider than the server list get cut by the client, placeholders count as empty here
+    private void warnOverflow(MotdTemplate template, MotdLine[] lines, String label) {
+        int slots = 0;
+        for (MotdLine line : lines) {
+            slots += line.getPlaceholderCount();
+        }
+        String[] empty = new String[slots];
+        Arrays.fill(empty, "");
+        int[] widths = template.measureLines(empty);
+        for (int i = 0; i < widths.length && i < lines.length; i++) {
+            if (widths[i] > FontWidths.MOTD_WIDTH) {
+                logger.warning(label + " line " + (i + 1) + " is " + (lines[i].isStatic() ? "" : "at least ") + widths[i]
+                        + "px wide, the server list only shows " + FontWidths.MOTD_WIDTH + "px.");
+            }
+        }
+    }
+
+    public ColorFormatter getFormatter() {
+        return formatter;
+    }
+}
@@ -0,0 +1,169 @@
+package net.fyrxlab.solverMOTD;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * One MOTD line split into literal text and placeholder spans.
+ * Literals and placeholders alternate: literal[0] slot[0] literal[1] ... literal[n],
+ * where each slot points into the {@link PlaceholderSnapshot} of the MOTD.
+ */
+public final class MotdLine {
+
+    // Private use area characters standing in for slots while a line goes through a parser
+    static final char MARKER_FIRST = '\uE000';
+    static final char MARKER_LAST = '\uF8FF';
+
+    private final String[] literals;
+    private final int[] slots;
+
+    private MotdLine(String[] literals, int[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+    }
+
+    /**
+     * Splits a raw config line on its %placeholder% and {native} tokens
+     * @param raw Line as written in config.yml
+     * @param registry Registry receiving the placeholders
+     * @return Parsed line
+     */
+    public static MotdLine parse(String raw, PlaceholderRegistry registry) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int literalStart = 0;
+        int i = 0;
+        while (i < raw.length()) {
+            char c = raw.charAt(i);
+            int close = -1;
+            int slot = -1;
+            if (c == '{') {
+                close = raw.indexOf('}', i + 1);
+                if (close > 0 && registry.isNative(raw.substring(i + 1, close))) {
+                    slot = registry.nativeSlot(raw.substring(i + 1, close));
+                }
+            } else if (c == '%' && registry.isPapiEnabled()) {
+                // Same rule as PlaceholderAPI: %identifier_params%, the identifier can't be empty
+                close = raw.indexOf('%', i + 1);
+                int underscore = raw.indexOf('_', i + 1);
+                if (close > 0 && underscore > i + 1 && underscore < close) {
+                    slot = registry.slot(raw.substring(i, close + 1));
+                }
+            }
+            if (slot < 0) {
+                i++; // A closing % may open the next placeholder
+                continue;
+            }
+            literals.add(raw.substring(literalStart, i));
+            slots.add(slot);
+            literalStart = close + 1;
+            i = close + 1;
+        }
+        literals.add(raw.substring(literalStart));
+        return new MotdLine(literals.toArray(new String[0]), slots.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    public boolean isStatic() {
+        return slots.length == 0;
+    }
+
+    public int getPlaceholderCount() {
+        return slots.length;
+    }
+
+    public String getLiteral(int index) {
+        return literals[index];
+    }
+
+    public int getSlot(int index) {
+        return slots[index];
+    }
+
+    /**
+     * Rebuilds a line from text where every slot was replaced by its marker character
+     * @param text Text produced from {@link #toMarkedText(int)} with single markers
+     * @return Line with the same slots
+     */
+    public static MotdLine fromMarkedText(String text) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int literalStart = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= MARKER_FIRST && c <= MARKER_LAST) {
+                literals.add(text.substring(literalStart, i));
+                slots.add(c - MARKER_FIRST);
+                literalStart = i + 1;
+            }
+        }
+        literals.add(text.substring(literalStart));
+        return new MotdLine(literals.toArray(new String[0]), slots.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Replaces every slot by its marker character
+     * @param repeat How many times each marker is written
+     * @return Marked text, null if the line can't be marked
+     */
+    public String toMarkedText(int repeat) {
+        // Markers already present in the text would be mistaken for slots
+        for (String literal : literals) {
+            for (int i = 0; i < literal.length(); i++) {
+                if (literal.charAt(i) >= MARKER_FIRST && literal.charAt(i) <= MARKER_LAST) {
+                    return null;
+                }
+            }
+        }
+        StringBuilder builder = new StringBuilder(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] > MARKER_LAST - MARKER_FIRST) {
+                return null;
+            }
+            for (int r = 0; r < repeat; r++) {
+                builder.append((char) (MARKER_FIRST + slots[i]));
+            }
+            builder.append(literals[i + 1]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Appends the line with its slots filled in
+     * @param builder Target buffer
+     * @param values Resolved values indexed by slot
+     * @param valueMapper Transformation applied to every value, e.g. color translation
+     */
+    public void appendTo(StringBuilder builder, String[] values, UnaryOperator<String> valueMapper) {
+        builder.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            builder.append(valueMapper.apply(values[slots[i]])).append(literals[i + 1]);
+        }
+    }
+
+    /**
+     * Returns the line with every literal passed through the given function
+     * @param mapper Transformation applied to the literals, e.g. color translation
+     * @return New line sharing the same placeholders
+     */
+    public MotdLine mapLiterals(UnaryOperator<String> mapper) {
+        String[] mapped = new String[literals.length];
+        for (int i = 0; i < literals.length; i++) {
+            mapped[i] = mapper.apply(literals[i]);
+        }
+        return new MotdLine(mapped, slots);
+    }
+
+    /**
+     * Returns the line with every slot renumbered
+     * @param mapping New slot indexed by current slot
+     * @return New line sharing the same literals
+     */
+    public MotdLine remapSlots(int[] mapping) {
+        int[] remapped = new int[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            remapped[i] = mapping[slots[i]];
+        }
+        return new MotdLine(literals, remapped);
+    }
+}
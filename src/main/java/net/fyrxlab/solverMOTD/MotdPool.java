@@ -0,0 +1,351 @@
+package net.fyrxlab.solverMOTD;
+
+import org.bukkit.event.server.ServerListPingEvent;
+import org.bukkit.util.CachedServerIcon;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Every MOTD variant compiled on a reload, plus the targets, schedule, rules and rotation deciding which one a ping gets.
+ * Selection only reads arrays and bumps a counter: no lock, no allocation, no config access.
+ */
+public final class MotdPool {
+
+    private static final int MAX_SEQUENCE = 4096; // Round-robin schedule length cap
+    private static final long ADDRESS_SEED = new SecureRandom().nextLong(); // See hashAddress
+
+    /**
+     * How the rotation picks a variant for a ping
+     */
+    public enum RotationMode {
+        RANDOM,
+        ROUND_ROBIN,
+        STICKY_PER_IP;
+
+        /**
+         * @param value Mode as written in config.yml, e.g. "round-robin"
+         * @return Mode, RANDOM when unknown
+         */
+        public static RotationMode parse(String value) {
+            if (value == null) {
+                return RANDOM;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                return RANDOM;
+            }
+        }
+    }
+
+    private final MotdVariant[] variants; // Indexed by MotdVariant#getIndex
+    private final Map<String, MotdVariant> byName;
+    private final MotdVariant[] rotation; // Variants with a positive weight
+    private final RotationMode mode;
+    private final AliasTable weights; // Random and sticky picks over the rotation
+    private final int[] sequence; // Smooth weighted round-robin schedule over the rotation
+    private final AtomicInteger counter = new AtomicInteger();
+    private final MotdRule[] rules; // Checked in order before the rotation
+    private final CidrTrie targets; // Address ranges of the pingers, to variant index
+    private final ReturningPlayers returning; // Null when disabled
+    private final MotdVariant returningVariant; // Shown to pingers who joined before, null when disabled
+    private final MotdSchedule schedule;
+    private final MotdVariant maintenance; // Shown instead of everything else while maintenance is on
+    private final int maintenanceMaxPlayers; // Max players shown during maintenance, negative keeps the real one
+    private volatile MotdVariant scheduled; // Variant of the open schedule window, swapped by the schedule timer
+    private volatile IconPool icons; // Loaded asynchronously after the pool is published, null until then
+    private final PlaceholderRefresher refresher;
+    private final ConversionTracker tracker; // Impressions and joins per variant, null when disabled
+    private final RateLimiter limiter; // Ping rate per address, null when disabled
+    private final String throttledMotd; // Fully rendered MOTD of throttled pings
+    private final PingAnalytics analytics; // Unique and heaviest pingers, null when disabled
+
+    MotdPool(MotdVariant[] variants, MotdVariant fallback, MotdVariant maintenance, int maintenanceMaxPlayers,
+             MotdRule[] rules, MotdSchedule schedule, CidrTrie targets, ReturningPlayers returning,
+             MotdVariant returningVariant, RotationMode mode, PlaceholderRefresher refresher,
+             ConversionTracker tracker, RateLimiter limiter, String throttledMotd, PingAnalytics analytics) {
+        this.variants = variants;
+        this.tracker = tracker;
+        this.limiter = limiter;
+        this.throttledMotd = throttledMotd;
+        this.analytics = analytics;
+        this.returning = returning;
+        this.returningVariant = returningVariant;
+        this.targets = targets;
+        this.maintenance = maintenance;
+        this.maintenanceMaxPlayers = maintenanceMaxPlayers;
+        this.rules = rules;
+        this.schedule = schedule;
+        this.mode = mode;
+        this.refresher = refresher;
+        Map<String, MotdVariant> byName = new LinkedHashMap<>();
+        int rotating = 0;
+        for (MotdVariant variant : variants) {
+            byName.put(variant.getName(), variant);
+            if (variant.getWeight() > 0) {
+                rotating++;
+            }
+        }
+        this.byName = Collections.unmodifiableMap(byName);
+
+        // Nothing to rotate: always serve the fallback
+        if (rotating == 0) {
+            this.rotation = new MotdVariant[]{fallback};
+        } else {
+            this.rotation = new MotdVariant[rotating];
+            for (int i = 0, n = 0; i < variants.length; i++) {
+                if (variants[i].getWeight() > 0) {
+                    rotation[n++] = variants[i];
+                }
+            }
+        }
+        double[] rotationWeights = new double[rotation.length];
+        for (int i = 0; i < rotation.length; i++) {
+            rotationWeights[i] = Math.max(rotation[i].getWeight(), Double.MIN_VALUE);
+        }
+        this.weights = new AliasTable(rotationWeights);
+        this.sequence = buildSequence(rotationWeights);
+    }
+
+    /**
+     * Picks the variant shown to a ping: the target of the pinger's address, the open schedule window,
+     * the returning player variant, the first matching rule, otherwise the rotation
+     * @param event Ping being answered
+     * @return Selected variant
+     */
+    public MotdVariant select(ServerListPingEvent event) {
+        if (!targets.isEmpty()) {
+            int target = targets.lookup(event.getAddress());
+            if (target >= 0) {
+                return variants[target];
+            }
+        }
+        MotdVariant scheduled = this.scheduled;
+        if (scheduled != null) {
+            return scheduled;
+        }
+        if (returningVariant != null && returning.lookup(event.getAddress()) != null) {
+            return returningVariant;
+        }
+        if (rules.length > 0) {
+            PlaceholderSnapshot snapshot = refresher.getSnapshot();
+            for (MotdRule rule : rules) {
+                if (rule.matches(event, snapshot)) {
+                    return rule.getVariant();
+                }
+            }
+        }
+        if (rotation.length == 1) {
+            return rotation[0];
+        }
+        switch (mode) {
+            case ROUND_ROBIN:
+                return rotation[sequence[(counter.getAndIncrement() & Integer.MAX_VALUE) % sequence.length]];
+            case STICKY_PER_IP:
+                // Inet4Address hashes to the address itself, mix it so close addresses spread out
+                return rotation[weights.pick(mix(event.getAddress().hashCode()))];
+            default:
+                return rotation[weights.pick(ThreadLocalRandom.current().nextLong())];
+        }
+    }
+
+    /**
+     * Renders a variant for a ping with the current placeholder values
+     * @param variant Variant picked for the ping
+     * @param event Ping being answered
+     * @return Final MOTD, the current frame when the variant is animated
+     */
+    public String render(MotdVariant variant, ServerListPingEvent event) {
+        return variant.getFrame(System.currentTimeMillis()).render(event, refresher.getSnapshot());
+    }
+
+    /**
+     * @param name Variant name
+     * @return Variant, null if there is none with that name
+     */
+    public MotdVariant getVariant(String name) {
+        return byName.get(name);
+    }
+
+    public MotdVariant[] getVariants() {
+        return variants.clone();
+    }
+
+    public MotdRule[] getRules() {
+        return rules.clone();
+    }
+
+    /**
+     * Picks the server icon shown with a variant
+     * @param variant Variant picked for the ping
+     * @return Preloaded icon, null to keep the server icon
+     */
+    public CachedServerIcon pickIcon(MotdVariant variant) {
+        IconPool current = icons;
+        return current == null ? null : current.pick(variant, System.currentTimeMillis());
+    }
+
+    public IconPool getIcons() {
+        return icons;
+    }
+
+    void setIcons(IconPool icons) {
+        this.icons = icons;
+    }
+
+    /**
+     * @return Whether any variant names a server icon
+     */
+    public boolean hasIcons() {
+        for (MotdVariant variant : variants) {
+            if (variant.getIconNames().length > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public MotdVariant getMaintenance() {
+        return maintenance;
+    }
+
+    public int getMaintenanceMaxPlayers() {
+        return maintenanceMaxPlayers;
+    }
+
+    public MotdSchedule getSchedule() {
+        return schedule;
+    }
+
+    /**
+     * Moves the pool to the variant of the schedule window open now
+     * @param now Current time in milliseconds
+     * @return Time of the next schedule transition, Long.MAX_VALUE without a schedule
+     */
+    public synchronized long applySchedule(long now) {
+        if (schedule.isEmpty()) {
+            return Long.MAX_VALUE;
+        }
+        scheduled = schedule.activeAt(now);
+        return schedule.nextTransition(now);
+    }
+
+    /**
+     * @return Variant of the schedule window open now, null if none
+     */
+    public MotdVariant getScheduled() {
+        return scheduled;
+    }
+
+    /**
+     * @return Conversion tracker of this pool, null when tracking is disabled
+     */
+    public ConversionTracker getTracker() {
+        return tracker;
+    }
+
+    /**
+     * @return Ping rate limiter of this pool, null when rate limiting is disabled
+     */
+    public RateLimiter getLimiter() {
+        return limiter;
+    }
+
+    /**
+     * @return MOTD shown to throttled pings, rendered once at reload
+     */
+    public String getThrottledMotd() {
+        return throttledMotd;
+    }
+
+    /**
+     * @return Ping analytics of this pool, null when analytics are disabled
+     */
+    public PingAnalytics getAnalytics() {
+        return analytics;
+    }
+
+    public PlaceholderRefresher getRefresher() {
+        return refresher;
+    }
+
+    // SplitMix64 finalizer, turns a 32-bit hash into 64 well spread bits
+    static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Hashes a pinger address for the fixed size tables of the ping path (rate limit, tracking, analytics).
+     * IPv6 addresses hash all 128 bits, Inet6Address.hashCode() only adds up their four words, so anyone
+     * holding a /64 could pick addresses landing on another pinger's slot. The seed changes on every start,
+     * so colliding addresses can't be worked out ahead either.
+     * @param address Address of the pinger
+     * @return 64 well spread bits
+     */
+    static long hashAddress(InetAddress address) {
+        if (address instanceof Inet4Address) {
+            return mix(address.hashCode() ^ ADDRESS_SEED); // Inet4Address hashes to its address
+        }
+        byte[] bytes = address.getAddress();
+        return mix(mix(toLong(bytes, 0) ^ ADDRESS_SEED) ^ toLong(bytes, 8));
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Precomputes a smooth weighted round-robin schedule, so consecutive pings interleave the variants
+     * @param weights Rotation weights
+     * @return Rotation indexes in serving order
+     */
+    private static int[] buildSequence(double[] weights) {
+        double min = Double.MAX_VALUE;
+        for (double weight : weights) {
+            min = Math.min(min, weight);
+        }
+        int[] counts = new int[weights.length];
+        long total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            counts[i] = (int) Math.max(1, Math.min(MAX_SEQUENCE, Math.round(weights[i] / min)));
+            total += counts[i];
+        }
+        if (total > MAX_SEQUENCE) {
+            double scale = (double) MAX_SEQUENCE / total;
+            total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = Math.max(1, (int) (counts[i] * scale));
+                total += counts[i];
+            }
+        }
+        int[] sequence = new int[(int) total];
+        long[] current = new long[counts.length];
+        for (int n = 0; n < sequence.length; n++) {
+            int best = 0;
+            for (int i = 0; i < counts.length; i++) {
+                current[i] += counts[i];
+                if (current[i] > current[best]) {
+                    best = i;
+                }
+            }
+            current[best] -= total;
+            sequence[n] = best;
+        }
+        return sequence;
+    }
+}
@@ -0,0 +1,36 @@
+package net.fyrxlab.solverMOTD;
+
+import org.bukkit.event.server.ServerListPingEvent;
+
+/**
+ * Entry of the "rules" list: shows a variant whenever its condition holds, before the rotation is asked.
+ */
+public final class MotdRule {
+
+    private final String condition; // As written in config.yml, for log messages
+    private final RuleExpression expression;
+    private final MotdVariant variant;
+
+    MotdRule(String condition, RuleExpression expression, MotdVariant variant) {
+        this.condition = condition;
+        this.expression = expression;
+        this.variant = variant;
+    }
+
+    /**
+     * @param event Ping being answered
+     * @param snapshot Current placeholder values
+     * @return Whether the rule applies to the ping
+     */
+    public boolean matches(ServerListPingEvent event, PlaceholderSnapshot snapshot) {
+        return expression.test(event, snapshot);
+    }
+
+    public String getCondition() {
+        return condition;
+    }
+
+    public MotdVariant getVariant() {
+        return variant;
+    }
+}
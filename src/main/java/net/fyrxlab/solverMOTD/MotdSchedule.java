@@ -0,0 +1,187 @@
+package net.fyrxlab.solverMOTD;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Time windows of the "schedule" section, each one showing a variant while it is open.
+ * The windows are expanded into a sorted timeline of transitions, covering a week at a time.
+ * A single timer asks for the variant active now and for the next transition, then sleeps until then,
+ * so pings never look at a date.
+ * <p>
+ * Only the schedule timer calls this class.
+ */
+public final class MotdSchedule {
+
+    static final long HORIZON = 7L * 24 * 60 * 60 * 1000; // Timeline length built at once
+    private static final int MAX_OCCURRENCES = 2_000; // Separate intervals per cron window and timeline
+
+    private final Window[] windows; // Config order, the first open window wins
+    private final ZoneId zone;
+
+    // Current timeline: segment i starts at times[i] and shows active[i], null meaning no scheduled variant
+    private long horizonStart = Long.MAX_VALUE;
+    private long horizonEnd = Long.MIN_VALUE;
+    private long[] times = new long[0];
+    private MotdVariant[] active = new MotdVariant[0];
+
+    MotdSchedule(Window[] windows, ZoneId zone) {
+        this.windows = windows;
+        this.zone = zone;
+    }
+
+    /**
+     * Window opening once, between two absolute times
+     * @param variant Variant shown while open
+     * @param start Opening time in milliseconds, Long.MIN_VALUE when already open
+     * @param end Closing time in milliseconds, Long.MAX_VALUE when it never closes
+     * @return Window
+     */
+    static Window absolute(MotdVariant variant, long start, long end) {
+        return new Window(variant, start, end, null, 0);
+    }
+
+    /**
+     * Window opening at every match of a cron expression
+     * @param variant Variant shown while open
+     * @param cron Opening times
+     * @param duration How long it stays open in milliseconds
+     * @return Window
+     */
+    static Window recurring(MotdVariant variant, CronExpression cron, long duration) {
+        return new Window(variant, 0, 0, cron, duration);
+    }
+
+    public boolean isEmpty() {
+        return windows.length == 0;
+    }
+
+    /**
+     * @param now Current time in milliseconds
+     * @return Variant scheduled now, null if no window is open
+     */
+    public MotdVariant activeAt(long now) {
+        ensureTimeline(now);
+        int index = Arrays.binarySearch(times, now);
+        return active[index >= 0 ? index : -index - 2];
+    }
+
+    /**
+     * @param now Current time in milliseconds
+     * @return Time of the next transition, or the end of the timeline when nothing changes until then
+     */
+    public long nextTransition(long now) {
+        ensureTimeline(now);
+        int index = Arrays.binarySearch(times, now);
+        int next = index >= 0 ? index + 1 : -index - 1;
+        return next < times.length ? times[next] : horizonEnd;
+    }
+
+    private void ensureTimeline(long now) {
+        if (now < horizonStart || now >= horizonEnd) {
+            build(now);
+        }
+    }
+
+    // Expand every window over [from, from + HORIZON) and keep the boundaries where the active variant changes
+    private void build(long from) {
+        long to = from + HORIZON;
+        List<List<long[]>> intervals = new ArrayList<>(windows.length);
+        for (Window window : windows) {
+            List<long[]> expanded = window.intervals(from, to, zone);
+            if (expanded.size() >= MAX_OCCURRENCES) {
+                // Later intervals of this window were not expanded, end the timeline at the last one
+                to = Math.min(to, expanded.get(expanded.size() - 1)[0]);
+            }
+            intervals.add(expanded);
+        }
+        TreeSet<Long> boundaries = new TreeSet<>();
+        boundaries.add(from);
+        for (int w = 0; w < windows.length; w++) {
+            for (long[] interval : intervals.get(w)) {
+                if (interval[0] > from && interval[0] < to) {
+                    boundaries.add(interval[0]);
+                }
+                if (interval[1] < to) {
+                    boundaries.add(interval[1]);
+                }
+            }
+        }
+        List<Long> changeTimes = new ArrayList<>();
+        List<MotdVariant> changeVariants = new ArrayList<>();
+        for (long time : boundaries) {
+            MotdVariant variant = null;
+            for (int w = 0; w < windows.length && variant == null; w++) {
+                for (long[] interval : intervals.get(w)) {
+                    if (interval[0] <= time && time < interval[1]) {
+                        variant = windows[w].variant;
+                        break;
+                    }
+                }
+            }
+            if (changeTimes.isEmpty() || changeVariants.get(changeVariants.size() - 1) != variant) {
+                changeTimes.add(time);
+                changeVariants.add(variant);
+            }
+        }
+        times = new long[changeTimes.size()];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = changeTimes.get(i);
+        }
+        active = changeVariants.toArray(new MotdVariant[0]);
+        horizonStart = from;
+        horizonEnd = to;
+    }
+
+    static final class Window {
+        final MotdVariant variant;
+        private final long start;
+        private final long end;
+        private final CronExpression cron; // Null for absolute windows
+        private final long duration;
+
+        private Window(MotdVariant variant, long start, long end, CronExpression cron, long duration) {
+            this.variant = variant;
+            this.start = start;
+            this.end = end;
+            this.cron = cron;
+            this.duration = duration;
+        }
+
+        // Open intervals overlapping [from, to), as {start, end} pairs. Overlapping and touching openings
+        // are merged, so a window open back to back counts once. Stops after MAX_OCCURRENCES intervals.
+        List<long[]> intervals(long from, long to, ZoneId zone) {
+            List<long[]> result = new ArrayList<>();
+            if (cron == null) {
+                if (start < to && end > from) {
+                    result.add(new long[]{start, end});
+                }
+                return result;
+            }
+            // Start far enough back to catch a window opened before "from" and still open
+            LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(from - duration), zone).minusMinutes(1);
+            LocalDateTime limit = LocalDateTime.ofInstant(Instant.ofEpochMilli(to), zone);
+            while (result.size() < MAX_OCCURRENCES) {
+                time = cron.next(time, limit);
+                if (time == null) {
+                    break;
+                }
+                long opening = time.atZone(zone).toInstant().toEpochMilli();
+                if (opening + duration > from && opening < to) {
+                    long[] last = result.isEmpty() ? null : result.get(result.size() - 1);
+                    if (last != null && opening <= last[1]) {
+                        last[1] = Math.max(last[1], opening + duration);
+                    } else {
+                        result.add(new long[]{opening, opening + duration});
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
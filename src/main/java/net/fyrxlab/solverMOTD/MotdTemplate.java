@@ -0,0 +1,462 @@
+package net.fyrxlab.solverMOTD;
+
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.bukkit.event.server.ServerListPingEvent;
+
+import java.util.Arrays;
+import java.util.function.UnaryOperator;
+
+/**
+ * Immutable MOTD compiled from config.yml on every reload, see {@link MotdCompiler}.
+ * The ping handler only reads a reference to this object, it never touches the config.
+ */
+public final class MotdTemplate {
+
+    private static final MiniMessage MINI_MESSAGE = MiniMessage.miniMessage();
+
+    // Keeps hex colors as §x§R§R§G§G§B§B instead of downsampling them to the nearest legacy color
+    private static final LegacyComponentSerializer HEX_SERIALIZER = LegacyComponentSerializer.builder()
+            .character(LegacyComponentSerializer.SECTION_CHAR)
+            .hexColors()
+            .useUnusualXRepeatedCharacterHexFormat()
+            .build();
+
+    // Reused per ping thread, rendered MOTDs are filled straight into it
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    // Longest padding a centered line can get, inserted in one piece
+    private static final String SPACES = " ".repeat(FontWidths.MOTD_WIDTH / 2 / FontWidths.spaceWidth(false));
+
+    /**
+     * How the raw lines are turned into the final legacy (§) string
+     */
+    public enum RenderMode {
+        LEGACY,
+        MINIMESSAGE
+    }
+
+    private final RenderMode mode;
+    private final LegacyComponentSerializer serializer; // MiniMessage only, matches the hex color support
+    private final MotdLine[] output; // Lines in their final § form, values are only filled in
+    private final UnaryOperator<String> valueMapper; // Applied to placeholder values while filling
+    private final boolean[] centered; // Lines padded to the middle of the server list
+    private final boolean aligned; // Whether any line is centered
+    private final int[][][] literalWidths; // Widths of the output literals, see measureLiterals, null when not centered
+    private final MotdLine[] markup; // Raw MiniMessage lines, only set when they can't be pre-parsed
+    private final String staticMotd; // Fully rendered MOTD, null when it depends on placeholders
+    private final int[] snapshotSlots; // Snapshot slot of every local slot, the registry is shared by all variants
+    private final NativePlaceholder[] bindings; // Native placeholder by local slot, null for PlaceholderAPI slots
+    private final int[] nativeSlots; // Local slots filled from the ping event
+    private final boolean perPinger; // Rendered per pinger, skips the render cache
+    private final RenderCache cache = new RenderCache(); // Rendered MOTD per tuple of placeholder values
+    private volatile Projection projection; // Local values of the last snapshot seen
+    private final PingStats stats; // Null when stats are disabled
+
+    // Values of the slots this template uses, taken from one snapshot
+    private static final class Projection {
+        final PlaceholderSnapshot snapshot;
+        final String[] values;
+
+        Projection(PlaceholderSnapshot snapshot, String[] values) {
+            this.snapshot = snapshot;
+            this.values = values;
+        }
+    }
+
+    MotdTemplate(RenderMode mode, MotdLine[] lines, boolean[] centered, PlaceholderRegistry registry,
+                 ColorFormatter formatter, PingStats stats) {
+        this.mode = mode;
+        this.centered = centered;
+        boolean aligned = false;
+        for (boolean center : centered) {
+            aligned |= center;
+        }
+        this.aligned = aligned;
+        this.serializer = formatter.hasHexColors() ? HEX_SERIALIZER : LegacyComponentSerializer.legacySection();
+        // Renumber the slots used by these lines from 0, so the render cache only keys on values shown here
+        NativePlaceholder[] registryBindings = registry.bindings();
+        int[] mapping = new int[registryBindings.length];
+        int[] used = new int[registryBindings.length];
+        int usedCount = 0;
+        for (MotdLine line : lines) {
+            for (int i = 0; i < line.getPlaceholderCount(); i++) {
+                int slot = line.getSlot(i);
+                if (mapping[slot] == 0) {
+                    used[usedCount] = slot;
+                    mapping[slot] = ++usedCount; // 0 means unused, stored one higher
+                }
+            }
+        }
+        for (int i = 0; i < mapping.length; i++) {
+            mapping[i]--;
+        }
+        lines = lines.clone();
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = lines[i].remapSlots(mapping);
+        }
+        this.snapshotSlots = Arrays.copyOf(used, usedCount);
+        this.bindings = new NativePlaceholder[usedCount];
+        int nativeCount = 0;
+        boolean perPinger = false;
+        for (int i = 0; i < usedCount; i++) {
+            bindings[i] = registryBindings[snapshotSlots[i]];
+            if (bindings[i] != null) {
+                nativeCount++;
+                perPinger |= bindings[i].isPerPinger();
+            }
+        }
+        this.nativeSlots = new int[nativeCount];
+        for (int i = 0, n = 0; i < bindings.length; i++) {
+            if (bindings[i] != null) {
+                nativeSlots[n++] = i;
+            }
+        }
+        this.perPinger = perPinger;
+        if (mode == RenderMode.LEGACY) {
+            this.output = new MotdLine[lines.length];
+            for (int i = 0; i < lines.length; i++) {
+                output[i] = lines[i].mapLiterals(formatter::format);
+            }
+            this.valueMapper = formatter::format;
+            this.markup = null;
+        } else {
+            MotdLine parsed = preParse(lines, serializer);
+            this.output = parsed == null ? null : new MotdLine[]{parsed};
+            this.valueMapper = UnaryOperator.identity(); // Values are plain text inside the parsed tree
+            this.markup = parsed == null ? lines : null;
+        }
+        this.literalWidths = aligned && output != null ? measureLiterals(output) : null;
+        boolean allStatic = true;
+        for (MotdLine line : lines) {
+            allStatic &= line.isStatic();
+        }
+        this.staticMotd = allStatic ? renderValues(new String[0]) : null; // Static lines read no value
+        this.stats = stats; // Set last, the compile time render above isn't counted
+    }
+
+    /**
+     * Parses the MiniMessage markup once with every slot replaced by a marker character.
+     * The serialized § string keeps the markers as plain text, so rendering only swaps them for values.
+     * @param lines Raw MiniMessage lines
+     * @param serializer Serializer producing the § string
+     * @return Single line holding the whole MOTD, null if the slots can't be filled after parsing
+     */
+    private static MotdLine preParse(MotdLine[] lines, LegacyComponentSerializer serializer) {
+        String single = markedMarkup(lines, 1);
+        String doubled = markedMarkup(lines, 2);
+        if (single == null || doubled == null || hasMarkerInsideTag(single)) {
+            return null; // e.g. <color:%my_color%>, the value changes the markup itself
+        }
+        String serialized = serializer.serialize(MINI_MESSAGE.deserialize(single));
+        String serializedDoubled = serializer.serialize(MINI_MESSAGE.deserialize(doubled));
+        // Tags styling each character (gradient, rainbow...) depend on the value length, they can't be pre-parsed
+        StringBuilder expected = new StringBuilder(serializedDoubled.length());
+        for (int i = 0; i < serialized.length(); i++) {
+            char c = serialized.charAt(i);
+            expected.append(c);
+            if (c >= MotdLine.MARKER_FIRST && c <= MotdLine.MARKER_LAST) {
+                expected.append(c);
+            }
+        }
+        MotdLine parsed = MotdLine.fromMarkedText(serialized);
+        int slotCount = 0;
+        for (MotdLine line : lines) {
+            slotCount += line.getPlaceholderCount();
+        }
+        // Every slot must have survived the parse exactly once
+        boolean valid = parsed.getPlaceholderCount() == slotCount && expected.toString().equals(serializedDoubled);
+        return valid ? parsed : null;
+    }
+
+    private static String markedMarkup(MotdLine[] lines, int repeat) {
+        StringBuilder marked = new StringBuilder();
+        for (int i = 0; i < lines.length; i++) {
+            String text = lines[i].toMarkedText(repeat);
+            if (text == null) {
+                return null;
+            }
+            marked.append(i == 0 ? "" : "\n").append(text);
+        }
+        return marked.toString();
+    }
+
+    private static boolean hasMarkerInsideTag(CharSequence markup) {
+        boolean insideTag = false;
+        for (int i = 0; i < markup.length(); i++) {
+            char c = markup.charAt(i);
+            if (c == '<') {
+                insideTag = true;
+            } else if (c == '>') {
+                insideTag = false;
+            } else if (insideTag && c >= MotdLine.MARKER_FIRST && c <= MotdLine.MARKER_LAST) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Measures the literals of the output lines once, so centering a render only measures its values.
+     * Every literal is split on '\n'; part p of a literal gets four entries: its width when starting
+     * plain and bold at [4p] and [4p + 1], whether it ends bold (1) or not (0) at [4p + 2] and [4p + 3].
+     * @param lines Output lines, in their final § form
+     * @return Parts by line and literal, null if a part ends inside a § code and can't be measured alone
+     */
+    private static int[][][] measureLiterals(MotdLine[] lines) {
+        int[][][] widths = new int[lines.length][][];
+        for (int l = 0; l < lines.length; l++) {
+            MotdLine line = lines[l];
+            widths[l] = new int[line.getPlaceholderCount() + 1][];
+            for (int i = 0; i < widths[l].length; i++) {
+                String[] parts = line.getLiteral(i).split("\n", -1);
+                int[] measured = new int[parts.length * 4];
+                for (int p = 0; p < parts.length; p++) {
+                    if (FontWidths.endsInsideCode(parts[p])) {
+                        return null;
+                    }
+                    for (int bold = 0; bold < 2; bold++) {
+                        measured[4 * p + bold] = FontWidths.width(parts[p], 0, parts[p].length(), bold == 1);
+                        measured[4 * p + 2 + bold] = FontWidths.boldAfter(parts[p], 0, parts[p].length(), bold == 1) ? 1 : 0;
+                    }
+                }
+                widths[l][i] = measured;
+            }
+        }
+        return widths;
+    }
+
+    /**
+     * Renders the MOTD for a single ping
+     * @param event Ping being answered, source of the native placeholders
+     * @param snapshot Current PlaceholderAPI values
+     * @return Final MOTD using § color codes
+     */
+    public String render(ServerListPingEvent event, PlaceholderSnapshot snapshot) {
+        if (stats != null) {
+            stats.countRender(mode, PingStats.RENDERS);
+        }
+        if (staticMotd != null) {
+            if (stats != null) {
+                stats.countRender(mode, PingStats.STATIC_RENDERS);
+            }
+            return staticMotd;
+        }
+        long start = stats != null ? System.nanoTime() : 0L;
+        String[] values = project(snapshot);
+        if (nativeSlots.length > 0) {
+            values = values.clone();
+            for (int slot : nativeSlots) {
+                values[slot] = bindings[slot].resolve(event);
+            }
+        }
+        if (stats != null) {
+            stats.record(PingStats.PLACEHOLDERS, System.nanoTime() - start);
+        }
+        if (perPinger) {
+            return renderValues(values);
+        }
+        // Unchanged values hit the cache, a burst of misses renders only once
+        return cache.get(values, this::renderValues);
+    }
+
+    /**
+     * Picks the values of the slots used here out of a snapshot.
+     * Snapshots only change when a value does, so consecutive pings share the same array and hit the cache fast path.
+     */
+    private String[] project(PlaceholderSnapshot snapshot) {
+        Projection last = projection;
+        if (last != null && last.snapshot == snapshot) {
+            return last.values;
+        }
+        String[] values = new String[snapshotSlots.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = snapshot.get(snapshotSlots[i]);
+        }
+        projection = new Projection(snapshot, values); // Racing pings build equal arrays, either one is fine
+        return values;
+    }
+
+    // Fill the placeholder slots with resolved values, no PlaceholderAPI call or markup parsing happens here
+    private String renderValues(String[] values) {
+        long start = stats != null ? System.nanoTime() : 0L;
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        if (literalWidths != null) {
+            if (fillCentered(buffer, values)) {
+                countFullRender(start, 0L);
+                return buffer.toString();
+            }
+            buffer.setLength(0); // A value breaks the line structure, measure the whole render instead
+        }
+        MotdLine[] lines = markup != null ? markup : output;
+        for (int i = 0; i < lines.length; i++) {
+            if (i > 0) {
+                buffer.append('\n');
+            }
+            lines[i].appendTo(buffer, values, valueMapper);
+        }
+        long parsing = 0L;
+        if (markup != null) {
+            // Fallback: the values are part of the markup, parse the whole MOTD
+            long filled = stats != null ? System.nanoTime() : 0L;
+            String serialized = serializer.serialize(MINI_MESSAGE.deserialize(buffer.toString()));
+            if (stats != null) {
+                parsing = System.nanoTime() - filled;
+                stats.record(PingStats.SERIALIZE, parsing);
+            }
+            if (!aligned) {
+                countFullRender(start, parsing);
+                return serialized;
+            }
+            buffer.setLength(0);
+            buffer.append(serialized);
+        }
+        if (aligned) {
+            align(buffer);
+        }
+        countFullRender(start, parsing);
+        return buffer.toString();
+    }
+
+    // Counts a render that missed the cache, its time since start minus the MiniMessage parsing is formatting
+    private void countFullRender(long start, long parsing) {
+        if (stats != null) {
+            stats.countRender(mode, PingStats.FULL_RENDERS);
+            stats.record(PingStats.FORMAT, System.nanoTime() - start - parsing);
+        }
+    }
+
+    /**
+     * Fills the values in and centers the lines on the way, adding the compile time widths of the
+     * literals to the widths of the values
+     * @param buffer Empty buffer receiving the MOTD
+     * @param values Values by local slot
+     * @return False if a value holds a line break or ends inside a § code, the buffer is then garbage
+     */
+    private boolean fillCentered(StringBuilder buffer, String[] values) {
+        int line = 0;
+        int lineStart = 0;
+        int width = 0;
+        boolean bold = false; // Formatting carries over from one line to the next
+        boolean lineBold = false; // Formatting at the start of the line, the padding gets it
+        for (int l = 0; l < output.length; l++) {
+            MotdLine out = output[l];
+            if (l > 0) {
+                pad(buffer, line++, lineStart, width, lineBold);
+                buffer.append('\n');
+                lineStart = buffer.length();
+                width = 0;
+                lineBold = bold;
+            }
+            for (int i = 0; ; i++) {
+                String literal = out.getLiteral(i);
+                int[] parts = literalWidths[l][i];
+                int from = 0;
+                for (int p = 0; ; p++) {
+                    int newline = literal.indexOf('\n', from);
+                    buffer.append(literal, from, newline < 0 ? literal.length() : newline);
+                    int state = bold ? 1 : 0;
+                    width += parts[4 * p + state];
+                    bold = parts[4 * p + 2 + state] != 0;
+                    if (newline < 0) {
+                        break;
+                    }
+                    pad(buffer, line++, lineStart, width, lineBold);
+                    buffer.append('\n');
+                    lineStart = buffer.length();
+                    width = 0;
+                    lineBold = bold;
+                    from = newline + 1;
+                }
+                if (i == out.getPlaceholderCount()) {
+                    break;
+                }
+                String value = valueMapper.apply(values[out.getSlot(i)]);
+                if (value.indexOf('\n') >= 0 || FontWidths.endsInsideCode(value)) {
+                    return false;
+                }
+                buffer.append(value);
+                width += FontWidths.width(value, 0, value.length(), bold);
+                bold = FontWidths.boldAfter(value, 0, value.length(), bold);
+            }
+        }
+        pad(buffer, line, lineStart, width, lineBold);
+        return true;
+    }
+
+    // Inserts the leading spaces of a line if it is centered
+    private void pad(StringBuilder buffer, int line, int lineStart, int width, boolean bold) {
+        if (line < centered.length && centered[line]) {
+            int spaces = Math.max(0, (FontWidths.MOTD_WIDTH - width) / 2 / FontWidths.spaceWidth(bold));
+            buffer.insert(lineStart, SPACES, 0, spaces);
+        }
+    }
+
+    /**
+     * Pads the centered lines of a rendered MOTD with leading spaces, measuring them whole.
+     * Used when the literals can't be measured ahead, see {@link #fillCentered}.
+     * @param buffer Rendered MOTD, lines separated by '\n'
+     */
+    private void align(StringBuilder buffer) {
+        boolean bold = false; // Formatting carries over from one line to the next
+        int lineStart = 0;
+        for (int line = 0; lineStart <= buffer.length(); line++) {
+            int lineEnd = buffer.indexOf("\n", lineStart);
+            if (lineEnd < 0) {
+                lineEnd = buffer.length();
+            }
+            if (line < centered.length && centered[line]) {
+                int width = FontWidths.width(buffer, lineStart, lineEnd, bold);
+                int spaces = Math.max(0, (FontWidths.MOTD_WIDTH - width) / 2 / FontWidths.spaceWidth(bold));
+                buffer.insert(lineStart, SPACES, 0, spaces);
+                lineEnd += spaces;
+            }
+            bold = FontWidths.boldAfter(buffer, lineStart, lineEnd, bold);
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    /**
+     * Measures every line of the MOTD rendered with the given values
+     * @param values Values by local slot, e.g. empty strings for a lower bound of dynamic lines
+     * @return Width of every line in pixels, without centering padding
+     */
+    int[] measureLines(String[] values) {
+        StringBuilder buffer = new StringBuilder();
+        MotdLine[] lines = markup != null ? markup : output;
+        for (int i = 0; i < lines.length; i++) {
+            if (i > 0) {
+                buffer.append('\n');
+            }
+            lines[i].appendTo(buffer, values, valueMapper);
+        }
+        String rendered = markup != null ? serializer.serialize(MINI_MESSAGE.deserialize(buffer.toString())) : buffer.toString();
+        String[] split = rendered.split("\n", -1);
+        int[] widths = new int[split.length];
+        boolean bold = false;
+        for (int i = 0; i < split.length; i++) {
+            widths[i] = FontWidths.width(split[i], 0, split[i].length(), bold);
+            bold = FontWidths.boldAfter(split[i], 0, split[i].length(), bold);
+        }
+        return widths;
+    }
+
+    public RenderMode getMode() {
+        return mode;
+    }
+
+    public RenderCache getCache() {
+        return cache;
+    }
+
+    // Whether the whole MOTD was rendered at compile time
+    boolean isStatic() {
+        return staticMotd != null;
+    }
+
+    // Whether the markup had to be kept because it can't be pre-parsed
+    boolean isParsedPerRender() {
+        return markup != null;
+    }
+}
@@ -0,0 +1,92 @@
+package net.fyrxlab.solverMOTD;
+
+/**
+ * One compiled MOTD of the pool, either the "motd" section or an entry of the "motds" list.
+ * An animated variant holds one template per frame and shows them in turn, one every frame interval.
+ * Its server icons rotate the same way.
+ */
+public final class MotdVariant {
+
+    private final String name;
+    private final int index; // Position in the pool, used by the per-variant bookkeeping
+    private final int logId; // Id in the ping log, derived from the name so it outlives reloads
+    private final double weight; // 0 keeps the variant out of the rotation
+    private final MotdTemplate[] frames; // A single frame when the variant is not animated
+    private final long frameInterval; // Milliseconds each frame is shown
+    private final String[] iconNames; // Files of the icons folder, loaded by the IconPool
+    private final long iconInterval; // Milliseconds each icon is shown when there are several
+
+    MotdVariant(String name, int index, double weight, MotdTemplate[] frames, long frameInterval,
+                String[] iconNames, long iconInterval) {
+        this.name = name;
+        this.index = index;
+        this.logId = PingLog.variantId(name);
+        this.weight = weight;
+        this.frames = frames;
+        this.frameInterval = Math.max(1L, frameInterval);
+        this.iconNames = iconNames;
+        this.iconInterval = iconInterval;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getLogId() {
+        return logId;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return First frame, the whole MOTD when the variant is not animated
+     */
+    public MotdTemplate getTemplate() {
+        return frames[0];
+    }
+
+    /**
+     * Picks the frame shown at a given time, frames were all compiled at reload
+     * @param now Current time in milliseconds
+     * @return Frame template
+     */
+    public MotdTemplate getFrame(long now) {
+        if (frames.length == 1) {
+            return frames[0];
+        }
+        return frames[(int) ((now / frameInterval) % frames.length)];
+    }
+
+    /**
+     * @param index Frame index, below {@link #getFrameCount()}
+     * @return Frame template
+     */
+    public MotdTemplate getFrameAt(int index) {
+        return frames[index];
+    }
+
+    public int getFrameCount() {
+        return frames.length;
+    }
+
+    public long getFrameInterval() {
+        return frameInterval;
+    }
+
+    /**
+     * @return Icon file names, empty when the variant uses the icons of the default MOTD
+     */
+    public String[] getIconNames() {
+        return iconNames.clone();
+    }
+
+    public long getIconInterval() {
+        return iconInterval;
+    }
+}
@@ -0,0 +1,94 @@
+package net.fyrxlab.solverMOTD;
+
+import org.bukkit.Server;
+import org.bukkit.event.server.ServerListPingEvent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Placeholder resolved straight from the ping event, written as {name} in config.yml.
+ * Works without PlaceholderAPI and never scans strings.
+ */
+public interface NativePlaceholder {
+
+    /**
+     * Resolves the value for a single ping
+     * @param event Ping being answered
+     * @return Value inserted in the MOTD
+     */
+    String resolve(ServerListPingEvent event);
+
+    /**
+     * @return Whether the value differs for every pinger, such values are not worth caching
+     */
+    default boolean isPerPinger() {
+        return false;
+    }
+
+    /**
+     * Builds the built-in placeholders: {online}, {max}, {version}, {address} and {player}
+     * @param server Server the plugin runs on
+     * @param returning Last player seen per address, null when disabled. {player} is empty for unknown
+     *                  pingers and while disabled.
+     * @return Placeholders by name
+     */
+    static Map<String, NativePlaceholder> defaults(Server server, ReturningPlayers returning) {
+        Map<String, NativePlaceholder> natives = new LinkedHashMap<>();
+        natives.put("online", event -> Numbers.toString(event.getNumPlayers()));
+        natives.put("max", event -> Numbers.toString(event.getMaxPlayers()));
+        // "1.21.4-R0.1-SNAPSHOT" -> "1.21.4", it can't change while the server runs
+        String bukkitVersion = server.getBukkitVersion();
+        int dash = bukkitVersion.indexOf('-');
+        String version = dash > 0 ? bukkitVersion.substring(0, dash) : bukkitVersion;
+        natives.put("version", event -> version);
+        natives.put("address", new NativePlaceholder() {
+            @Override
+            public String resolve(ServerListPingEvent event) {
+                return event.getAddress().getHostAddress();
+            }
+
+            @Override
+            public boolean isPerPinger() {
+                return true;
+            }
+        });
+        if (returning == null) {
+            natives.put("player", event -> "");
+            return natives;
+        }
+        natives.put("player", new NativePlaceholder() {
+            @Override
+            public String resolve(ServerListPingEvent event) {
+                String name = returning.lookup(event.getAddress());
+                return name == null ? "" : name;
+            }
+
+            @Override
+            public boolean isPerPinger() {
+                return true;
+            }
+        });
+        return natives;
+    }
+
+    /**
+     * Cache of small numbers, player counts render without allocating
+     */
+    final class Numbers {
+        private static final String[] CACHE = new String[1024];
+
+        static {
+            for (int i = 0; i < CACHE.length; i++) {
+                CACHE[i] = Integer.toString(i);
+            }
+        }
+
+        private Numbers() {
+        }
+
+        static String toString(int value) {
+            return value >= 0 && value < CACHE.length ? CACHE[value] : Integer.toString(value);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package net.fyrxlab.solverMOTD;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Who pings the server, in memory that doesn't depend on the traffic.
+ * <p>
+ * Every window counts unique pingers with a HyperLogLog sketch (2^14 registers of 8 bits, about 0.8%
+ * standard error) and ping counts per address with a Count-Min sketch, whose estimates feed a small
+ * heap of the heaviest pingers. Sketch registers and counters are atomics updated with compare-and-set
+ * or increments. The heap is only touched when an estimate beats its smallest entry, under a
+ * {@code tryLock} that a ping never waits for: a ping losing the race is simply counted in the sketch
+ * and gets another chance on its next ping. Windows start over at every multiple of the window length,
+ * the last finished one is kept for comparison.
+ */
+public final class PingAnalytics {
+
+    private static final int PRECISION = 14; // HyperLogLog registers: 2^14
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final int DEPTH = 4; // Count-Min rows, each a hash of the address
+
+    private final long length; // Window length in milliseconds
+    private final int width; // Count-Min columns, a power of two
+    private final int top; // Heaviest pingers kept
+    private final AtomicReference<Window> current = new AtomicReference<>();
+    private volatile Window previous;
+
+    /**
+     * @param length Window length in milliseconds
+     * @param width Count-Min counters per row, rounded up to a power of two
+     * @param top Number of heaviest pingers kept per window
+     */
+    public PingAnalytics(long length, int width, int top) {
+        this.length = Math.max(1000L, length);
+        this.width = Integer.highestOneBit(Math.max(16, width - 1)) << 1;
+        this.top = Math.max(1, top);
+        current.set(new Window(System.currentTimeMillis()));
+    }
+
+    /**
+     * Counts a ping
+     * @param address Address of the pinger
+     * @param now Current time in milliseconds
+     */
+    public void record(InetAddress address, long now) {
+        if (address == null) {
+            return;
+        }
+        Window window = current.get();
+        if (now >= window.end) {
+            Window next = new Window(now);
+            if (current.compareAndSet(window, next)) {
+                previous = window;
+            }
+            window = current.get();
+        }
+        window.record(address, MotdPool.hashAddress(address));
+    }
+
+    /**
+     * @return Window being counted
+     */
+    public Window getCurrent() {
+        return current.get();
+    }
+
+    /**
+     * @return Last finished window, null during the first one
+     */
+    public Window getPrevious() {
+        return previous;
+    }
+
+    /**
+     * @return Bytes held by the sketches of both windows
+     */
+    public long getSketchBytes() {
+        return 2L * (REGISTERS + (long) DEPTH * width * 8L);
+    }
+
+    /**
+     * Sketches of one window
+     */
+    public final class Window {
+
+        private final long start;
+        private final long end;
+        private final LongAdder pings = new LongAdder();
+        private final AtomicLongArray registers = new AtomicLongArray(REGISTERS / 8); // 8 registers per long
+        private final AtomicLongArray counters = new AtomicLongArray(DEPTH * width);
+        private final ReentrantLock heapLock = new ReentrantLock();
+        private final InetAddress[] heapAddresses = new InetAddress[top]; // Min-heap on the counts
+        private final long[] heapCounts = new long[top];
+        private int heapSize;
+        private volatile long threshold; // Count to beat to enter the heap, 0 while it isn't full
+
+        private Window(long now) {
+            this.start = now - now % length;
+            this.end = start + length;
+        }
+
+        private void record(InetAddress address, long hash) {
+            pings.increment();
+
+            // HyperLogLog: the first bits pick a register, it keeps the longest run of leading zeros of the rest
+            int index = (int) (hash >>> (64 - PRECISION));
+            long rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+            int shift = (index & 7) * 8;
+            while (true) {
+                long word = registers.get(index >>> 3);
+                if (((word >>> shift) & 0xFF) >= rank) {
+                    break;
+                }
+                if (registers.compareAndSet(index >>> 3, word, (word & ~(0xFFL << shift)) | (rank << shift))) {
+                    break;
+                }
+            }
+
+            // Count-Min: the estimate is the smallest counter of the address over the rows
+            long second = MotdPool.mix(hash);
+            int h1 = (int) second;
+            int h2 = (int) (second >>> 32) | 1;
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) {
+                int column = (h1 + row * h2) & (width - 1);
+                estimate = Math.min(estimate, counters.incrementAndGet(row * width + column));
+            }
+            if (estimate > threshold && heapLock.tryLock()) {
+                try {
+                    offer(address, estimate);
+                } finally {
+                    heapLock.unlock();
+                }
+            }
+        }
+
+        // Holds the heap lock
+        private void offer(InetAddress address, long count) {
+            for (int i = 0; i < heapSize; i++) {
+                if (heapAddresses[i].equals(address)) {
+                    heapCounts[i] = count; // Estimates only grow, the entry can only sink
+                    siftDown(i);
+                    updateThreshold();
+                    return;
+                }
+            }
+            if (heapSize < top) {
+                int i = heapSize++;
+                heapAddresses[i] = address;
+                heapCounts[i] = count;
+                while (i > 0 && heapCounts[(i - 1) / 2] > heapCounts[i]) {
+                    swap(i, (i - 1) / 2);
+                    i = (i - 1) / 2;
+                }
+            } else if (count > heapCounts[0]) {
+                heapAddresses[0] = address;
+                heapCounts[0] = count;
+                siftDown(0);
+            }
+            updateThreshold();
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                for (int child = 2 * i + 1; child <= 2 * i + 2 && child < heapSize; child++) {
+                    if (heapCounts[child] < heapCounts[smallest]) {
+                        smallest = child;
+                    }
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            InetAddress address = heapAddresses[a];
+            heapAddresses[a] = heapAddresses[b];
+            heapAddresses[b] = address;
+            long count = heapCounts[a];
+            heapCounts[a] = heapCounts[b];
+            heapCounts[b] = count;
+        }
+
+        private void updateThreshold() {
+            threshold = heapSize < top ? 0L : heapCounts[0];
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getPings() {
+            return pings.sum();
+        }
+
+        /**
+         * @return Estimated number of distinct addresses seen in this window
+         */
+        public long getUniquePingers() {
+            double sum = 0;
+            int zeros = 0;
+            for (int i = 0; i < REGISTERS; i++) {
+                long register = (registers.get(i >>> 3) >>> ((i & 7) * 8)) & 0xFF;
+                sum += 1.0 / (1L << register);
+                if (register == 0) {
+                    zeros++;
+                }
+            }
+            double estimate = 0.7213 / (1 + 1.079 / REGISTERS) * REGISTERS * REGISTERS / sum;
+            if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+                estimate = REGISTERS * Math.log((double) REGISTERS / zeros); // Linear counting is better when small
+            }
+            return Math.round(estimate);
+        }
+
+        /**
+         * @return Heaviest pingers, heaviest first
+         */
+        public List<Pinger> getHeaviest() {
+            List<Pinger> heaviest = new ArrayList<>();
+            heapLock.lock();
+            try {
+                for (int i = 0; i < heapSize; i++) {
+                    heaviest.add(new Pinger(heapAddresses[i], heapCounts[i]));
+                }
+            } finally {
+                heapLock.unlock();
+            }
+            heaviest.sort((a, b) -> Long.compare(b.getPings(), a.getPings()));
+            return heaviest;
+        }
+    }
+
+    /**
+     * An address of the heaviest pingers and its estimated ping count, never below the real one
+     */
+    public static final class Pinger {
+
+        private final InetAddress address;
+        private final long pings;
+
+        Pinger(InetAddress address, long pings) {
+            this.address = address;
+            this.pings = pings;
+        }
+
+        public InetAddress getAddress() {
+            return address;
+        }
+
+        public long getPings() {
+            return pings;
+        }
+    }
+}
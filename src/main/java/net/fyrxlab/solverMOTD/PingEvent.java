@@ -0,0 +1,34 @@
+package net.fyrxlab.solverMOTD;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of one answered ping. Off by default, pings are too frequent for a continuous
+ * recording; its fields are only filled when {@link #shouldCommit()} says the event is recorded.
+ * PlaceholderAPI never runs on the ping thread, its time shows as {@link PlaceholderEvent}s of the refresher.
+ */
+@Name("solvermotd.Ping")
+@Label("MOTD Ping")
+@Category("SolverMOTD")
+@Description("A server list ping answered by SolverMOTD, its duration is the whole handler")
+@Enabled(false)
+@StackTrace(false)
+final class PingEvent extends Event {
+
+    @Label("Variant")
+    @Description("MOTD variant shown, empty when the ping was throttled")
+    String variant;
+
+    @Label("Render Mode")
+    String renderMode;
+
+    @Label("Throttled")
+    @Description("Whether the pinger was over its rate and got the pre-rendered MOTD")
+    boolean throttled;
+}
@@ -0,0 +1,265 @@
+package net.fyrxlab.solverMOTD;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last pings, kept across restarts in a memory-mapped ring file of fixed size records.
+ * <p>
+ * A ping claims the next record with an atomic increment and writes it with absolute puts into the
+ * mapping, so appending takes no lock and no system call: the operating system writes the pages back
+ * on its own, and {@link #close()} forces them out. Once the file is full the oldest records are
+ * overwritten. Records are 32 bytes: time (8), address as IPv6, IPv4 mapped to ::ffff:a.b.c.d (16),
+ * variant id (4) and render time in nanoseconds (4).
+ * <p>
+ * The variant id is a hash of the variant name, so records keep their variant when a reload adds,
+ * removes or reorders variants. Every name ever registered is kept in a names file next to the ring
+ * file, which lets an export label records of variants that are gone since.
+ */
+public final class PingLog {
+
+    static final int RECORD_SIZE = 32;
+    static final int THROTTLED = 0; // Variant id of the pings that got the throttled MOTD, no name hashes to it
+
+    private static final int MAGIC = 0x534D4C47; // "SMLG"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = RECORD_SIZE; // Keeps the records aligned
+    private static final long IPV4_MAPPED = 0xFFFF_0000_0000L;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final AtomicLong next; // Sequence number of the next record, the slot is next % capacity
+    private final File namesFile;
+    private final Map<Integer, String> names; // Variant name by id, every name registered with this file
+
+    private PingLog(RandomAccessFile file, MappedByteBuffer buffer, int capacity, long next, File namesFile,
+                    Map<Integer, String> names) {
+        this.file = file;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.next = new AtomicLong(next);
+        this.namesFile = namesFile;
+        this.names = names;
+    }
+
+    /**
+     * @param name Variant name
+     * @return Id of the name in the records, never {@link #THROTTLED}
+     */
+    public static int variantId(String name) {
+        int hash = 0x811C9DC5; // FNV-1a, fixed by its definition so ids survive restarts
+        for (int i = 0; i < name.length(); i++) {
+            hash = (hash ^ name.charAt(i)) * 0x01000193;
+        }
+        return hash == THROTTLED ? 1 : hash;
+    }
+
+    /**
+     * Maps the ring file, creating it or starting it over when its size doesn't match the capacity
+     * @param path Ring file
+     * @param namesFile Names of the variants found in the records, started over with the ring file
+     * @param capacity Number of records kept
+     * @return Opened log, appending after the newest record found
+     * @throws IOException If the file can't be created or mapped
+     */
+    public static PingLog open(File path, File namesFile, int capacity) throws IOException {
+        long size = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        try {
+            boolean valid = file.length() == size && file.readInt() == MAGIC && file.readInt() == VERSION
+                    && file.readInt() == RECORD_SIZE && file.readInt() == capacity;
+            if (!valid) {
+                file.setLength(0L);
+                file.setLength(size);
+                if (namesFile.exists() && !namesFile.delete()) {
+                    throw new IOException("Could not delete " + namesFile.getName());
+                }
+            }
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0L, size);
+            buffer.load(); // Fault the pages in now rather than on a ping
+            buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, RECORD_SIZE).putInt(12, capacity);
+            // The newest record tells where appending stopped
+            int newest = -1;
+            long newestTime = 0L;
+            for (int slot = 0; slot < capacity; slot++) {
+                long time = buffer.getLong(offset(slot));
+                if (time > newestTime) {
+                    newestTime = time;
+                    newest = slot;
+                }
+            }
+            return new PingLog(file, buffer, capacity, newest + 1L, namesFile, loadNames(namesFile));
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    // One "<id in hex> <name>" per line
+    private static Map<Integer, String> loadNames(File namesFile) throws IOException {
+        Map<Integer, String> names = new ConcurrentHashMap<>();
+        if (!namesFile.exists()) {
+            return names;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(namesFile),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int space = line.indexOf(' ');
+                if (space > 0) {
+                    try {
+                        names.put(Integer.parseUnsignedInt(line.substring(0, space), 16), line.substring(space + 1));
+                    } catch (NumberFormatException ignored) {
+                        // Damaged line, its records are exported with their id
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Remembers the names of the variants of a pool, meant to run on every reload before the pool is used
+     * @param variants Variants of the pool
+     * @throws IOException If the names file can't be written
+     */
+    public synchronized void register(MotdVariant[] variants) throws IOException {
+        StringBuilder added = new StringBuilder();
+        for (MotdVariant variant : variants) {
+            String name = variant.getName().replace('\n', ' ');
+            int id = variant.getLogId();
+            String known = names.get(id);
+            if (known != null && ("|" + known + "|").contains("|" + name + "|")) {
+                continue;
+            }
+            // Two names with the same id can't be told apart, their records are labeled with both
+            String label = known == null ? name : known + "|" + name;
+            names.put(id, label);
+            added.append(Integer.toHexString(id)).append(' ').append(label).append('\n');
+        }
+        if (added.length() > 0) {
+            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(namesFile, true), StandardCharsets.UTF_8))) {
+                writer.write(added.toString());
+            }
+        }
+    }
+
+    private static int offset(long slot) {
+        return HEADER_SIZE + (int) slot * RECORD_SIZE;
+    }
+
+    /**
+     * Appends a ping, safe to call from any number of threads at once
+     * @param time Time of the ping in milliseconds
+     * @param address Address of the pinger
+     * @param variant Id of the variant shown, see {@link MotdVariant#getLogId()}, {@link #THROTTLED} for
+     *                the throttled MOTD
+     * @param renderNanos Time spent choosing and rendering the MOTD
+     */
+    public void append(long time, InetAddress address, int variant, long renderNanos) {
+        long high;
+        long low;
+        if (address instanceof Inet4Address) {
+            high = 0L;
+            low = IPV4_MAPPED | (address.hashCode() & 0xFFFF_FFFFL); // Inet4Address hashes to its address
+        } else if (address != null) {
+            ByteBuffer bytes = ByteBuffer.wrap(address.getAddress());
+            high = bytes.getLong();
+            low = bytes.getLong();
+        } else {
+            high = 0L;
+            low = 0L;
+        }
+        int offset = offset(next.getAndIncrement() % capacity);
+        // The time goes last, a record being overwritten reads as empty meanwhile
+        buffer.putLong(offset, 0L);
+        buffer.putLong(offset + 8, high);
+        buffer.putLong(offset + 16, low);
+        buffer.putInt(offset + 24, variant);
+        buffer.putInt(offset + 28, (int) Math.min(Integer.MAX_VALUE, renderNanos));
+        buffer.putLong(offset, time);
+    }
+
+    /**
+     * Writes the records of a time range to a CSV file, oldest first. Meant to run on an async task.
+     * @param from Start of the range in milliseconds, inclusive
+     * @param to End of the range in milliseconds, exclusive
+     * @param output CSV file, overwritten
+     * @return Number of records written
+     * @throws IOException If the CSV file can't be written
+     */
+    public int export(long from, long to, File output) throws IOException {
+        List<long[]> records = new ArrayList<>();
+        for (int slot = 0; slot < capacity; slot++) {
+            int offset = offset(slot);
+            long time = buffer.getLong(offset);
+            if (time != 0L && time >= from && time < to) {
+                records.add(new long[]{time, buffer.getLong(offset + 8), buffer.getLong(offset + 16),
+                        buffer.getInt(offset + 24), buffer.getInt(offset + 28) & 0xFFFF_FFFFL});
+            }
+        }
+        records.sort((a, b) -> Long.compare(a[0], b[0]));
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(output))) {
+            writer.write("time,address,variant,render_ns");
+            writer.newLine();
+            for (long[] record : records) {
+                int variant = (int) record[3];
+                String name = variant == THROTTLED ? "throttled" : names.get(variant);
+                writer.write(Instant.ofEpochMilli(record[0]) + "," + formatAddress(record[1], record[2]) + ","
+                        + (name != null ? name : "#" + Integer.toHexString(variant)) + "," + record[4]);
+                writer.newLine();
+            }
+        }
+        return records.size();
+    }
+
+    private static String formatAddress(long high, long low) throws IOException {
+        if (high == 0L && (low >>> 32) == 0xFFFFL) {
+            return (low >>> 24 & 0xFF) + "." + (low >>> 16 & 0xFF) + "." + (low >>> 8 & 0xFF) + "." + (low & 0xFF);
+        }
+        return InetAddress.getByAddress(ByteBuffer.allocate(16).putLong(high).putLong(low).array()).getHostAddress();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return Bytes of the ring file
+     */
+    public long getFileBytes() {
+        return HEADER_SIZE + (long) capacity * RECORD_SIZE;
+    }
+
+    /**
+     * Forces the mapped records to disk and closes the file. The mapping itself is released by the
+     * garbage collector, appending after this still works but won't reach the disk reliably.
+     * @throws IOException If the file can't be closed
+     */
+    public void close() throws IOException {
+        buffer.force();
+        file.close();
+    }
+}
@@ -0,0 +1,258 @@
+package net.fyrxlab.solverMOTD;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of the ping path, shown by "/smotd stats".
+ * <p>
+ * Counters are {@link LongAdder}s, striped so concurrent pings don't fight over one cache line.
+ * Latencies go into fixed log-linear histograms: 8 buckets per power of two, so a bucket is at most
+ * 12.5% wide, from 1ns to about a minute. A timer calls {@link #tick()} every minute to snapshot
+ * everything; the command only reads the differences between snapshots, covering the last full
+ * minute and up to the last hour. When stats are disabled no instance exists and the ping path
+ * only sees a null check.
+ */
+public final class PingStats {
+
+    // Counters
+    public static final int PINGS = 0;
+    public static final int THROTTLED = 1;
+    public static final int PAPI_CALLS = 2;
+    public static final int RENDERS = 3; // Renders by mode from here, indexed by RenderMode ordinal
+    public static final int FULL_RENDERS = RENDERS + 2; // Renders that missed the cache, by mode
+    public static final int STATIC_RENDERS = FULL_RENDERS + 2; // Renders of pre-rendered MOTDs, by mode
+    private static final int COUNTERS = STATIC_RENDERS + 2;
+
+    // Latency stages
+    public static final int TOTAL = 0; // Whole ping handler
+    public static final int PLACEHOLDERS = 1; // Placeholder values of a ping, from the snapshot and the event
+    public static final int FORMAT = 2; // Filling the values in and centering
+    public static final int SERIALIZE = 3; // MiniMessage parsing, only for markup that can't be pre-parsed
+    public static final int PAPI = 4; // One PlaceholderAPI call, on the refresher
+    public static final int RELOAD = 5; // Compiling config.yml into a pool
+    static final String[] STAGE_NAMES = {"ping", "placeholders", "format", "serialize", "papi", "reload"};
+
+    static final int SUB_BITS = 3; // 2^3 buckets per power of two
+    static final int MAX_EXPONENT = 36; // Last power of two split in buckets, values from 2^37 ns (137s) share the last one
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) << SUB_BITS;
+    private static final int HOUR_STEP = 5; // Minutes between the snapshots kept for the hour
+    private static final int HOUR_SNAPSHOTS = 60 / HOUR_STEP + 1;
+
+    private final LongAdder[] counters = new LongAdder[COUNTERS];
+    private final AtomicLongArray[] histograms = new AtomicLongArray[STAGE_NAMES.length];
+    private final LongAdder[] sums = new LongAdder[STAGE_NAMES.length]; // Nanoseconds recorded per stage
+
+    // Written by the timer, read by the command
+    private final Snapshot[] hourly = new Snapshot[HOUR_SNAPSHOTS];
+    private Snapshot lastTick;
+    private volatile Window minute;
+    private volatile Window hour;
+    private int ticks;
+
+    public PingStats() {
+        for (int i = 0; i < COUNTERS; i++) {
+            counters[i] = new LongAdder();
+        }
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new AtomicLongArray(BUCKETS);
+            sums[i] = new LongAdder();
+        }
+        lastTick = capture();
+        hourly[0] = lastTick;
+    }
+
+    public void count(int counter) {
+        counters[counter].increment();
+    }
+
+    /**
+     * Counts a render of a template
+     * @param mode Render mode of the template
+     * @param kind {@link #RENDERS}, {@link #FULL_RENDERS} or {@link #STATIC_RENDERS}
+     */
+    public void countRender(MotdTemplate.RenderMode mode, int kind) {
+        counters[kind + mode.ordinal()].increment();
+    }
+
+    /**
+     * Records the duration of a stage
+     * @param stage Stage, e.g. {@link #TOTAL}
+     * @param nanos Duration in nanoseconds
+     */
+    public void record(int stage, long nanos) {
+        histograms[stage].incrementAndGet(bucket(nanos));
+        sums[stage].add(nanos);
+    }
+
+    /**
+     * @param counter Counter, e.g. {@link #PINGS}
+     * @return Count since the stats were created
+     */
+    public long getTotal(int counter) {
+        return counters[counter].sum();
+    }
+
+    /**
+     * @param stage Stage, e.g. {@link #TOTAL}
+     * @param bucket Histogram bucket
+     * @return Durations recorded in the bucket since the stats were created
+     */
+    public long getBucketCount(int stage, int bucket) {
+        return histograms[stage].get(bucket);
+    }
+
+    /**
+     * @param stage Stage, e.g. {@link #TOTAL}
+     * @return Nanoseconds recorded since the stats were created
+     */
+    public long getSum(int stage) {
+        return sums[stage].sum();
+    }
+
+    static int bucket(long nanos) {
+        if (nanos < (1L << SUB_BITS)) {
+            return (int) Math.max(0L, nanos);
+        }
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(nanos), MAX_EXPONENT);
+        int sub = (int) (Math.min(nanos, (1L << (MAX_EXPONENT + 1)) - 1) >>> (exponent - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+        return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+    }
+
+    // Middle of a bucket, the value reported for it
+    static long bucketValue(int bucket) {
+        if (bucket < (1 << SUB_BITS)) {
+            return bucket;
+        }
+        int exponent = (bucket >>> SUB_BITS) + SUB_BITS - 1;
+        long width = 1L << (exponent - SUB_BITS);
+        long low = (1L << exponent) + (bucket & ((1 << SUB_BITS) - 1)) * width;
+        return low + width / 2;
+    }
+
+    /**
+     * Snapshots the counters, meant to run on a one minute timer
+     */
+    public synchronized void tick() {
+        Snapshot now = capture();
+        minute = new Window(now.minus(lastTick), 1);
+        lastTick = now;
+        ticks++;
+        if (ticks % HOUR_STEP == 0) {
+            hourly[(ticks / HOUR_STEP) % HOUR_SNAPSHOTS] = now;
+        }
+        // Oldest snapshot kept, an hour back once the ring is full
+        int oldest = ticks / HOUR_STEP < HOUR_SNAPSHOTS - 1 ? 0 : (ticks / HOUR_STEP + 1) % HOUR_SNAPSHOTS;
+        int minutes = ticks / HOUR_STEP < HOUR_SNAPSHOTS - 1 ? ticks : 60 + ticks % HOUR_STEP;
+        hour = new Window(now.minus(hourly[oldest]), minutes);
+    }
+
+    private Snapshot capture() {
+        long[] values = new long[COUNTERS];
+        for (int i = 0; i < COUNTERS; i++) {
+            values[i] = counters[i].sum();
+        }
+        long[][] buckets = new long[histograms.length][BUCKETS];
+        for (int stage = 0; stage < histograms.length; stage++) {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[stage][i] = histograms[stage].get(i);
+            }
+        }
+        return new Snapshot(values, buckets);
+    }
+
+    /**
+     * @return Last full minute, null until the first tick
+     */
+    public Window getMinute() {
+        return minute;
+    }
+
+    /**
+     * @return Up to the last hour, null until the first tick
+     */
+    public Window getHour() {
+        return hour;
+    }
+
+    private static final class Snapshot {
+        final long[] counters;
+        final long[][] buckets;
+
+        Snapshot(long[] counters, long[][] buckets) {
+            this.counters = counters;
+            this.buckets = buckets;
+        }
+
+        Snapshot minus(Snapshot earlier) {
+            long[] values = counters.clone();
+            for (int i = 0; i < values.length; i++) {
+                values[i] -= earlier.counters[i];
+            }
+            long[][] difference = new long[buckets.length][];
+            for (int stage = 0; stage < buckets.length; stage++) {
+                difference[stage] = buckets[stage].clone();
+                for (int i = 0; i < BUCKETS; i++) {
+                    difference[stage][i] -= earlier.buckets[stage][i];
+                }
+            }
+            return new Snapshot(values, difference);
+        }
+    }
+
+    /**
+     * Counts and latencies between two snapshots
+     */
+    public static final class Window {
+
+        private final Snapshot delta;
+        private final int minutes;
+
+        private Window(Snapshot delta, int minutes) {
+            this.delta = delta;
+            this.minutes = Math.max(1, minutes);
+        }
+
+        public int getMinutes() {
+            return minutes;
+        }
+
+        public long getCount(int counter) {
+            return delta.counters[counter];
+        }
+
+        /**
+         * @param counter Counter, e.g. {@link #PINGS}
+         * @return Average per second over the window
+         */
+        public double getRate(int counter) {
+            return delta.counters[counter] / (minutes * 60.0);
+        }
+
+        public long getSamples(int stage) {
+            long samples = 0;
+            for (long count : delta.buckets[stage]) {
+                samples += count;
+            }
+            return samples;
+        }
+
+        /**
+         * @param stage Stage, e.g. {@link #TOTAL}
+         * @param quantile Quantile between 0 and 1, e.g. 0.99
+         * @return Latency in nanoseconds, within 12.5%, 0 without samples
+         */
+        public long getPercentile(int stage, double quantile) {
+            long[] buckets = delta.buckets[stage];
+            long rank = (long) Math.ceil(getSamples(stage) * quantile);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank && seen > 0) {
+                    return bucketValue(i);
+                }
+            }
+            return 0L;
+        }
+    }
+}
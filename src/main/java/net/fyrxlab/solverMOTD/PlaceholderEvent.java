@@ -0,0 +1,24 @@
+package net.fyrxlab.solverMOTD;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of one PlaceholderAPI call made by the refresher, off by default.
+ */
+@Name("solvermotd.PlaceholderCall")
+@Label("PlaceholderAPI Call")
+@Category("SolverMOTD")
+@Description("One PlaceholderAPI expansion call resolving a MOTD placeholder off the ping path")
+@Enabled(false)
+@StackTrace(false)
+final class PlaceholderEvent extends Event {
+
+    @Label("Placeholder")
+    String placeholder;
+}
@@ -0,0 +1,278 @@
+package net.fyrxlab.solverMOTD;
+
+import me.clip.placeholderapi.PlaceholderAPI;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Resolves the MOTD placeholders off the ping path.
+ * Runs every tick on an async task, refreshes the placeholders whose interval elapsed
+ * and publishes the values as an immutable {@link PlaceholderSnapshot}.
+ * <p>
+ * Every expansion call runs on the placeholder executor against a time budget. A call that runs over
+ * keeps the last good value (or the fallback), and a placeholder that keeps running over trips a
+ * circuit breaker that skips it for a cooldown.
+ */
+public final class PlaceholderRefresher implements Runnable {
+
+    static final long DEFAULT_REFRESH = 1000L;
+    static final long DEFAULT_TIMEOUT = 100L;
+    static final int DEFAULT_BREAKER_FAILURES = 3;
+    static final long DEFAULT_BREAKER_COOLDOWN = 30_000L;
+
+    private final String[] tokens;
+    private final boolean[] refreshed; // False for native slots, those come from the ping event
+    private final long[] intervals; // Refresh interval per slot in milliseconds
+    private final long[] timeouts; // Time budget per slot in milliseconds
+    private final String[] fallbacks; // Served when a slot has no good value yet, null keeps the raw token
+    private final int breakerFailures;
+    private final long breakerCooldown;
+    private final ExecutorService executor;
+    private final PingStats stats; // Null when stats are disabled
+    private final Logger logger;
+
+    // Only touched by the refreshing thread, guarded by running
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final long[] nextRefresh;
+    private final Future<?>[] pending; // Call still running after its budget, never stacked
+    private final int[] breaches; // Consecutive budget breaches
+    private final long[] openUntil; // Circuit breaker cooldown end
+    private final boolean[] resolved; // Whether the slot got a good value at least once
+
+    private volatile PlaceholderSnapshot snapshot;
+
+    private PlaceholderRefresher(String[] tokens, boolean[] refreshed, long[] intervals, long[] timeouts,
+                                 String[] fallbacks, int breakerFailures, long breakerCooldown,
+                                 ExecutorService executor, PingStats stats, Logger logger) {
+        this.tokens = tokens;
+        this.refreshed = refreshed;
+        this.intervals = intervals;
+        this.timeouts = timeouts;
+        this.fallbacks = fallbacks;
+        this.breakerFailures = breakerFailures;
+        this.breakerCooldown = breakerCooldown;
+        this.executor = executor;
+        this.stats = stats;
+        this.logger = logger;
+        this.nextRefresh = new long[tokens.length];
+        this.pending = new Future<?>[tokens.length];
+        this.breaches = new int[tokens.length];
+        this.openUntil = new long[tokens.length];
+        this.resolved = new boolean[tokens.length];
+        this.snapshot = new PlaceholderSnapshot(tokens.clone()); // Raw tokens until the first refresh
+    }
+
+    /**
+     * Creates the refresher for every placeholder of a compiled MOTD
+     * @param registry Placeholders used by the MOTD
+     * @param config The "placeholders" section of config.yml, may be null
+     * @param executor Executor running the expansion calls
+     * @param stats Stats counting and timing the expansion calls, null when disabled
+     * @param logger Logger used to report tripped circuit breakers
+     * @return Refresher, not scheduled yet
+     */
+    public static PlaceholderRefresher create(PlaceholderRegistry registry, ConfigurationSection config,
+                                              ExecutorService executor, PingStats stats, Logger logger) {
+        String[] tokens = registry.tokens();
+        NativePlaceholder[] bindings = registry.bindings();
+        boolean[] refreshed = new boolean[tokens.length];
+        long defaultInterval = config == null ? DEFAULT_REFRESH
+                : Durations.parse(config.getString("refresh"), DEFAULT_REFRESH);
+        long defaultTimeout = config == null ? DEFAULT_TIMEOUT
+                : Durations.parse(config.getString("timeout"), DEFAULT_TIMEOUT);
+        String defaultFallback = config == null ? null : config.getString("fallback");
+        int breakerFailures = config == null ? DEFAULT_BREAKER_FAILURES
+                : Math.max(1, config.getInt("breaker.failures", DEFAULT_BREAKER_FAILURES));
+        long breakerCooldown = config == null ? DEFAULT_BREAKER_COOLDOWN
+                : Durations.parse(config.getString("breaker.cooldown"), DEFAULT_BREAKER_COOLDOWN);
+        ConfigurationSection overrides = config == null ? null : config.getConfigurationSection("overrides");
+        long[] intervals = new long[tokens.length];
+        long[] timeouts = new long[tokens.length];
+        String[] fallbacks = new String[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            refreshed[i] = bindings[i] == null;
+            // Overrides are keyed by the placeholder without its % signs, e.g. "server_tps"
+            String id = tokens[i].substring(1, tokens[i].length() - 1);
+            ConfigurationSection override = overrides == null ? null : overrides.getConfigurationSection(id);
+            if (override == null) {
+                intervals[i] = defaultInterval;
+                timeouts[i] = defaultTimeout;
+                fallbacks[i] = defaultFallback;
+            } else {
+                intervals[i] = Durations.parse(override.getString("refresh"), defaultInterval);
+                timeouts[i] = Durations.parse(override.getString("timeout"), defaultTimeout);
+                fallbacks[i] = override.getString("fallback", defaultFallback);
+            }
+        }
+        return new PlaceholderRefresher(tokens, refreshed, intervals, timeouts, fallbacks,
+                breakerFailures, breakerCooldown, executor, stats, logger);
+    }
+
+    public PlaceholderSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return Whether the MOTD uses no PlaceholderAPI placeholder at all
+     */
+    public boolean isEmpty() {
+        for (boolean slot : refreshed) {
+            if (slot) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Resolves every placeholder right away, used at reload so the first pings have values
+     */
+    public void refreshAll() {
+        refresh(true);
+    }
+
+    @Override
+    public void run() {
+        refresh(false);
+    }
+
+    private void refresh(boolean force) {
+        // Async repeating tasks may overlap when a run waits on slow expansions
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            publish(resolveDue(force));
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Resolve the due slots, returns the new values or null when nothing changed
+    private String[] resolveDue(boolean force) {
+        long now = System.currentTimeMillis();
+        PlaceholderSnapshot current = snapshot;
+        String[] values = null;
+        int[] submitted = new int[tokens.length];
+        int submittedCount = 0;
+
+        for (int i = 0; i < tokens.length; i++) {
+            if (!refreshed[i]) {
+                continue;
+            }
+            if (pending[i] != null) {
+                if (!pending[i].isDone()) {
+                    continue; // Still blocked, don't stack another call on the expansion
+                }
+                // Late result of a call that ran over its budget, still better than the fallback
+                values = apply(values, current, i, lateResult(i), true);
+            }
+            if (now < openUntil[i] || (!force && now < nextRefresh[i])) {
+                continue;
+            }
+            nextRefresh[i] = now + intervals[i];
+            String token = tokens[i];
+            try {
+                pending[i] = executor.submit(() -> resolve(token));
+                submitted[submittedCount++] = i;
+            } catch (RejectedExecutionException e) {
+                return values; // Shutting down
+            }
+        }
+
+        // All due calls run in parallel, each one is only waited for until its own budget ends
+        long start = System.nanoTime();
+        for (int n = 0; n < submittedCount; n++) {
+            int i = submitted[n];
+            long remaining = TimeUnit.MILLISECONDS.toNanos(timeouts[i]) - (System.nanoTime() - start);
+            try {
+                String value = (String) pending[i].get(Math.max(0L, remaining), TimeUnit.NANOSECONDS);
+                pending[i] = null;
+                breaches[i] = 0;
+                values = apply(values, current, i, value, true);
+            } catch (TimeoutException e) {
+                values = apply(values, current, i, breach(i, now, "exceeded its " + timeouts[i] + "ms budget"), false);
+            } catch (ExecutionException e) {
+                pending[i] = null;
+                values = apply(values, current, i, breach(i, now, "failed with " + e.getCause()), false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return values;
+            }
+        }
+        return values;
+    }
+
+    // One expansion call, timed when stats are enabled or a recording wants it
+    private String resolve(String token) {
+        PlaceholderEvent recording = new PlaceholderEvent();
+        recording.begin();
+        long start = stats != null ? System.nanoTime() : 0L;
+        try {
+            return PlaceholderAPI.setPlaceholders(null, token);
+        } finally {
+            if (stats != null) {
+                stats.count(PingStats.PAPI_CALLS);
+                stats.record(PingStats.PAPI, System.nanoTime() - start);
+            }
+            if (recording.shouldCommit()) {
+                recording.placeholder = token;
+                recording.commit();
+            }
+        }
+    }
+
+    private String lateResult(int slot) {
+        Future<?> future = pending[slot];
+        pending[slot] = null;
+        try {
+            return (String) future.get();
+        } catch (InterruptedException | ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Records a failed resolution and trips the circuit breaker when the slot keeps failing
+     * @return Value to serve instead, null to keep the current one
+     */
+    private String breach(int slot, long now, String reason) {
+        if (++breaches[slot] >= breakerFailures) {
+            openUntil[slot] = now + breakerCooldown;
+            breaches[slot] = breakerFailures - 1; // Half open: one more failure after the cooldown trips it again
+            logger.warning("Placeholder " + tokens[slot] + " " + reason + " " + breakerFailures
+                    + " times in a row, skipping it for " + breakerCooldown + "ms.");
+        }
+        return resolved[slot] ? null : fallbacks[slot];
+    }
+
+    // Copy-on-write update of a single slot
+    private String[] apply(String[] values, PlaceholderSnapshot current, int slot, String value, boolean good) {
+        if (value == null) {
+            return values;
+        }
+        resolved[slot] |= good;
+        String previous = values != null ? values[slot] : current.get(slot);
+        if (value.equals(previous)) {
+            return values;
+        }
+        String[] updated = values != null ? values : current.copyValues();
+        updated[slot] = value;
+        return updated;
+    }
+
+    // Only publish when something changed, so unchanged values keep the same snapshot
+    private void publish(String[] values) {
+        if (values != null) {
+            snapshot = new PlaceholderSnapshot(values);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package net.fyrxlab.solverMOTD;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns every distinct placeholder of a compiled MOTD a slot number.
+ * The same token used in several lines shares one slot, so it is only resolved once.
+ * PlaceholderAPI tokens are filled by the refresher, {native} ones straight from the ping event.
+ */
+public final class PlaceholderRegistry {
+
+    private final Map<String, Integer> slots = new LinkedHashMap<>();
+    private final List<NativePlaceholder> bindings = new ArrayList<>(); // By slot, null for PlaceholderAPI slots
+    private final Map<String, NativePlaceholder> natives;
+    private final boolean papiEnabled;
+
+    /**
+     * @param natives Native placeholders available to the MOTD, by name
+     * @param papiEnabled Whether %placeholders% should be detected
+     */
+    public PlaceholderRegistry(Map<String, NativePlaceholder> natives, boolean papiEnabled) {
+        this.natives = natives;
+        this.papiEnabled = papiEnabled;
+    }
+
+    public boolean isPapiEnabled() {
+        return papiEnabled;
+    }
+
+    public boolean isNative(String name) {
+        return natives.containsKey(name);
+    }
+
+    /**
+     * Returns the slot of a PlaceholderAPI token, registering it on first use
+     * @param token Placeholder including its % signs
+     * @return Slot index
+     */
+    public int slot(String token) {
+        return register(token, null);
+    }
+
+    /**
+     * Returns the slot of a native placeholder, registering it on first use
+     * @param name Placeholder name without its braces
+     * @return Slot index
+     */
+    public int nativeSlot(String name) {
+        return register("{" + name + "}", natives.get(name));
+    }
+
+    private int register(String token, NativePlaceholder binding) {
+        Integer slot = slots.get(token);
+        if (slot == null) {
+            slot = slots.size();
+            slots.put(token, slot);
+            bindings.add(binding);
+        }
+        return slot;
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * @return Registered tokens ordered by slot
+     */
+    public String[] tokens() {
+        return slots.keySet().toArray(new String[0]);
+    }
+
+    /**
+     * @return Native placeholder of every slot, null for PlaceholderAPI slots
+     */
+    public NativePlaceholder[] bindings() {
+        return bindings.toArray(new NativePlaceholder[0]);
+    }
+}
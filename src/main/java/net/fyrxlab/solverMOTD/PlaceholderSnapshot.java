@@ -0,0 +1,86 @@
+package net.fyrxlab.solverMOTD;
+
+/**
+ * Immutable set of resolved placeholder values, indexed by {@link PlaceholderRegistry} slot.
+ * A new snapshot is published whenever a value changes, pings only read it.
+ * Numeric values are parsed once here, so rules compare plain doubles on every ping.
+ */
+public final class PlaceholderSnapshot {
+
+    private final String[] values;
+    private final double[] numbers; // NaN for values that are not numeric
+
+    PlaceholderSnapshot(String[] values) {
+        this.values = values;
+        this.numbers = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            numbers[i] = parseNumber(values[i]);
+        }
+    }
+
+    public String get(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * @param slot Slot index
+     * @return Numeric value of the slot, NaN if it is not a number
+     */
+    public double getNumber(int slot) {
+        return numbers[slot];
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    // Copy used by the refresher to build the next snapshot
+    String[] copyValues() {
+        return values.clone();
+    }
+
+    /**
+     * Reads the first number of a placeholder value, skipping color codes and decorations
+     * such as "§a19.98" or "*20.0". Thousand separators are ignored.
+     * @param value Placeholder value
+     * @return Number, NaN if the value holds none
+     */
+    static double parseNumber(String value) {
+        if (value == null) {
+            return Double.NaN;
+        }
+        int length = value.length();
+        int start = 0;
+        while (start < length) {
+            char c = value.charAt(start);
+            if (c == '§' || c == '&') {
+                start += 2; // Color code
+            } else if ((c >= '0' && c <= '9') || c == '-' && start + 1 < length && Character.isDigit(value.charAt(start + 1))) {
+                break;
+            } else {
+                start++;
+            }
+        }
+        if (start >= length) {
+            return Double.NaN;
+        }
+        StringBuilder digits = new StringBuilder(length - start);
+        boolean dot = false;
+        for (int i = start; i < length; i++) {
+            char c = value.charAt(i);
+            if ((c >= '0' && c <= '9') || (i == start && c == '-')) {
+                digits.append(c);
+            } else if (c == '.' && !dot) {
+                dot = true;
+                digits.append(c);
+            } else if (c != ',') {
+                break;
+            }
+        }
+        try {
+            return Double.parseDouble(digits.toString());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package net.fyrxlab.solverMOTD;
+
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-address token buckets limiting how often a pinger gets the full MOTD.
+ * <p>
+ * Every bucket is one packed long in a fixed size table indexed by a hash of the address: 24 bits of
+ * address fingerprint and 40 bits holding the time the bucket is full again, the token count being
+ * derived from it (the GCRA form of a token bucket). A ping takes a token with a single compare-and-set
+ * on its own slot, so pingers never contend on a lock or on each other. A full bucket is the same as
+ * no bucket, so the sweep frees every slot whose bucket refilled. Two addresses sharing a slot reset
+ * each other's bucket, which can only let a ping through.
+ */
+public final class RateLimiter {
+
+    private static final long TIME_MASK = (1L << 40) - 1; // Milliseconds since the epoch below, 34 years
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final long interval; // Milliseconds one token takes to come back
+    private final long tolerance; // How far ahead of now a bucket may be emptied, burst - 1 tokens
+    private final long epoch = System.currentTimeMillis();
+    private final LongAdder throttled = new LongAdder();
+
+    /**
+     * @param slotCount Table size, rounded up to a power of two
+     * @param pings Bucket size, pings allowed in a burst
+     * @param period Milliseconds a full bucket takes to refill
+     */
+    public RateLimiter(int slotCount, int pings, long period) {
+        int size = Integer.highestOneBit(Math.max(16, slotCount - 1)) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        int burst = Math.max(1, pings);
+        this.interval = Math.max(1L, period / burst);
+        this.tolerance = interval * (burst - 1);
+    }
+
+    /**
+     * Takes a token from the bucket of an address
+     * @param address Address of the pinger
+     * @param now Current time in milliseconds
+     * @return Whether the ping gets the full MOTD, false when throttled
+     */
+    public boolean tryAcquire(InetAddress address, long now) {
+        if (address == null) {
+            return true;
+        }
+        long hash = MotdPool.hashAddress(address);
+        int slot = (int) hash & mask;
+        long time = now - epoch;
+        while (true) {
+            long packed = slots.get(slot);
+            // A bucket of another address, or none, counts as full
+            long full = packed != 0L && fingerprint(packed) == fingerprint(hash) ? packed & TIME_MASK : time;
+            long start = Math.max(full, time);
+            if (start - time > tolerance) {
+                throttled.increment();
+                return false;
+            }
+            if (slots.compareAndSet(slot, packed, (hash >>> 40 << 40) | ((start + interval) & TIME_MASK))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Frees the slots of buckets that refilled, meant to run on a timer
+     * @param now Current time in milliseconds
+     * @return Buckets still partially empty
+     */
+    public int sweep(long now) {
+        long time = now - epoch;
+        int active = 0;
+        for (int slot = 0; slot < slots.length(); slot++) {
+            long packed = slots.get(slot);
+            if (packed == 0L) {
+                continue;
+            }
+            // A ping refilling the slot meanwhile makes the CAS fail, the bucket is kept
+            if ((packed & TIME_MASK) > time || !slots.compareAndSet(slot, packed, 0L)) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    /**
+     * @return Pings throttled since this limiter was created
+     */
+    public long getThrottled() {
+        return throttled.sum();
+    }
+
+    /**
+     * @return Bytes held by the bucket table
+     */
+    public long getTableBytes() {
+        return slots.length() * 8L;
+    }
+
+    private static long fingerprint(long bits) {
+        return bits >>> 40;
+    }
+}
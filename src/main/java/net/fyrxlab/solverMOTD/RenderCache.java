@@ -0,0 +1,102 @@
+package net.fyrxlab.solverMOTD;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Memoizes rendered MOTDs keyed by the tuple of resolved placeholder values.
+ * Concurrent misses on the same tuple are single-flight: one ping renders, the others wait for its result.
+ */
+public final class RenderCache {
+
+    private static final int MAX_ENTRIES = 256; // Cleared when exceeded, values rarely have this many combinations
+
+    private final ConcurrentHashMap<Key, CompletableFuture<String>> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile Last last; // Most recent result, checked before touching the map
+
+    /**
+     * Returns the rendered MOTD for a tuple of values, rendering it only once
+     * @param values Resolved values, must not be modified afterwards
+     * @param renderer Renders the MOTD on a miss
+     * @return Rendered MOTD
+     */
+    public String get(String[] values, Function<String[], String> renderer) {
+        Last recent = last;
+        if (recent != null && (recent.values == values || Arrays.equals(recent.values, values))) {
+            hits.increment();
+            return recent.rendered;
+        }
+
+        Key key = new Key(values);
+        CompletableFuture<String> future = entries.get(key);
+        if (future == null) {
+            CompletableFuture<String> created = new CompletableFuture<>();
+            future = entries.putIfAbsent(key, created);
+            if (future == null) {
+                // This ping won the race, everyone else waits on its future
+                misses.increment();
+                if (entries.size() > MAX_ENTRIES) {
+                    entries.clear();
+                    entries.put(key, created);
+                }
+                try {
+                    String rendered = renderer.apply(values);
+                    created.complete(rendered);
+                    last = new Last(values, rendered);
+                    return rendered;
+                } catch (RuntimeException e) {
+                    entries.remove(key, created);
+                    created.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        hits.increment();
+        return future.join();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // Last rendered tuple, compared by identity first since snapshots are reused until a value changes
+    private static final class Last {
+        private final String[] values;
+        private final String rendered;
+
+        private Last(String[] values, String rendered) {
+            this.values = values;
+            this.rendered = rendered;
+        }
+    }
+
+    // Map key with the hash computed once
+    private static final class Key {
+        private final String[] values;
+        private final int hash;
+
+        private Key(String[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && hash == ((Key) other).hash && Arrays.equals(values, ((Key) other).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
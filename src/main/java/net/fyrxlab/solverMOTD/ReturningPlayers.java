@@ -0,0 +1,433 @@
+package net.fyrxlab.solverMOTD;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Last player name seen per address, filled on join and read on every ping.
+ * <p>
+ * Addresses live in fixed size open addressing tables, IPv4 keyed by its {@code int} and IPv6 by two
+ * {@code long}s, holding indexes into a shared name table instead of objects. Once a table is full the
+ * least recently used entries are evicted with the CLOCK approximation, so memory stays capped however
+ * many addresses ping the server. Pings read under an optimistic {@link StampedLock} stamp and only fall
+ * back to a read lock when a join wrote meanwhile.
+ */
+public final class ReturningPlayers {
+
+    private static final int FILE_VERSION = 1;
+
+    private final StampedLock lock = new StampedLock();
+    private final Ipv4Table ipv4;
+    private final Ipv6Table ipv6;
+
+    // Name table, guarded by the write lock; names are read without it, a stale name is harmless
+    private volatile String[] names = new String[16];
+    private int[] references = new int[16]; // Entries pointing at every name, 0 frees it
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private int[] freeNames = new int[16];
+    private int freeCount;
+    private int nameCount;
+
+    /**
+     * @param capacity Maximum number of remembered addresses per address family
+     */
+    public ReturningPlayers(int capacity) {
+        // 75% max load keeps probe sequences short
+        int slots = Integer.highestOneBit(Math.max(16, capacity * 4 / 3 - 1)) << 1;
+        this.ipv4 = new Ipv4Table(slots, capacity);
+        this.ipv6 = new Ipv6Table(slots, capacity);
+    }
+
+    /**
+     * Remembers the player who joined from an address
+     * @param address Address of the player
+     * @param name Player name
+     */
+    public void record(InetAddress address, String name) {
+        long stamp = lock.writeLock();
+        try {
+            int id = acquireName(name);
+            int previous;
+            if (address instanceof Inet4Address) {
+                previous = ipv4.put(address.hashCode(), id + 1); // Inet4Address hashes to its address
+            } else {
+                byte[] bytes = address.getAddress();
+                previous = ipv6.put(toLong(bytes, 0), toLong(bytes, 8), id + 1);
+            }
+            if (previous != 0) {
+                releaseName(previous - 1);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Reads the last player seen from an address, marking it as recently used
+     * @param address Address of the pinger
+     * @return Player name, null for an unknown address
+     */
+    public String lookup(InetAddress address) {
+        if (address == null) {
+            return null;
+        }
+        boolean v4 = address instanceof Inet4Address;
+        long high;
+        long low;
+        if (v4) {
+            high = address.hashCode();
+            low = 0L;
+        } else {
+            byte[] bytes = address.getAddress();
+            high = toLong(bytes, 0);
+            low = toLong(bytes, 8);
+        }
+        long stamp = lock.tryOptimisticRead();
+        int id = v4 ? ipv4.get((int) high) : ipv6.get(high, low);
+        String[] table = names;
+        String name = id > 0 && id <= table.length ? table[id - 1] : null;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                id = v4 ? ipv4.get((int) high) : ipv6.get(high, low);
+                name = id > 0 ? names[id - 1] : null;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * @return Bytes held by the address tables, fixed by the capacity
+     */
+    public long getTableBytes() {
+        return ipv4.values.length * (4L + 4L + 1L) + ipv6.values.length * (8L + 8L + 4L + 1L);
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return ipv4.size + ipv6.size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private int acquireName(String name) {
+        Integer id = nameIds.get(name);
+        if (id == null) {
+            if (freeCount > 0) {
+                id = freeNames[--freeCount];
+            } else {
+                id = nameCount++;
+                if (id == references.length) {
+                    String[] grown = Arrays.copyOf(names, id * 2);
+                    references = Arrays.copyOf(references, id * 2);
+                    names = grown;
+                }
+            }
+            names[id] = name;
+            nameIds.put(name, id);
+        }
+        references[id]++;
+        return id;
+    }
+
+    private void releaseName(int id) {
+        if (--references[id] == 0) {
+            nameIds.remove(names[id]);
+            if (freeCount == freeNames.length) {
+                freeNames = Arrays.copyOf(freeNames, freeCount * 2);
+            }
+            freeNames[freeCount++] = id;
+        }
+    }
+
+    // Evicted entries give their name back
+    private void evicted(int value) {
+        releaseName(value - 1);
+    }
+
+    /**
+     * Writes every entry to a file, overwriting it
+     * @param file Snapshot file
+     * @throws IOException If the file can't be written
+     */
+    public void save(File file) throws IOException {
+        long stamp = lock.readLock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(FILE_VERSION);
+            out.writeInt(ipv4.size);
+            for (int slot = 0; slot < ipv4.values.length; slot++) {
+                if (ipv4.values[slot] != 0) {
+                    out.writeInt(ipv4.keys[slot]);
+                    out.writeUTF(names[ipv4.values[slot] - 1]);
+                }
+            }
+            out.writeInt(ipv6.size);
+            for (int slot = 0; slot < ipv6.values.length; slot++) {
+                if (ipv6.values[slot] != 0) {
+                    out.writeLong(ipv6.high[slot]);
+                    out.writeLong(ipv6.low[slot]);
+                    out.writeUTF(names[ipv6.values[slot] - 1]);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Reads the entries of a snapshot, entries past the capacity evict the older ones
+     * @param file Snapshot file, ignored when missing
+     * @throws IOException If the file can't be read
+     */
+    public void load(File file) throws IOException {
+        if (!file.isFile()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int key = in.readInt();
+                String name = in.readUTF();
+                long stamp = lock.writeLock();
+                try {
+                    int previous = ipv4.put(key, acquireName(name) + 1);
+                    if (previous != 0) {
+                        releaseName(previous - 1);
+                    }
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+            }
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long high = in.readLong();
+                long low = in.readLong();
+                String name = in.readUTF();
+                long stamp = lock.writeLock();
+                try {
+                    int previous = ipv6.put(high, low, acquireName(name) + 1);
+                    if (previous != 0) {
+                        releaseName(previous - 1);
+                    }
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+            }
+        }
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    // Fibonacci hashing spreads consecutive addresses over the table
+    private static int spread(long key, int mask) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    /**
+     * Linear probing table with CLOCK eviction. Values are name index + 1, 0 marks an empty slot.
+     * Writes hold the write lock; reads may run concurrently and must stay in bounds whatever they see.
+     */
+    private abstract class Table {
+        final int[] values;
+        final byte[] referenced; // CLOCK bit, set on every hit
+        final int mask;
+        final int capacity;
+        int size;
+        int hand; // CLOCK hand
+
+        Table(int slots, int capacity) {
+            this.values = new int[slots];
+            this.referenced = new byte[slots];
+            this.mask = slots - 1;
+            this.capacity = capacity;
+        }
+
+        abstract int home(int slot);
+
+        abstract void move(int from, int to);
+
+        // Sweep the clock until an entry that wasn't used since the last pass is found
+        void evictOne() {
+            while (true) {
+                int slot = hand;
+                hand = (hand + 1) & mask;
+                if (values[slot] == 0) {
+                    continue;
+                }
+                if (referenced[slot] != 0) {
+                    referenced[slot] = 0;
+                    continue;
+                }
+                evicted(values[slot]);
+                remove(slot);
+                return;
+            }
+        }
+
+        // Backward shift deletion keeps every probe sequence unbroken without tombstones
+        void remove(int slot) {
+            int hole = slot;
+            int next = (slot + 1) & mask;
+            while (values[next] != 0) {
+                int home = home(next);
+                // Move the entry back if the hole lies between its home and where it sits now
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    move(next, hole);
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            values[hole] = 0;
+            referenced[hole] = 0;
+            size--;
+        }
+    }
+
+    private final class Ipv4Table extends Table {
+        final int[] keys;
+
+        Ipv4Table(int slots, int capacity) {
+            super(slots, capacity);
+            this.keys = new int[slots];
+        }
+
+        int get(int key) {
+            int slot = spread(key, mask);
+            for (int probes = 0; probes <= mask; probes++) {
+                int value = values[slot];
+                if (value == 0) {
+                    return 0;
+                }
+                if (keys[slot] == key) {
+                    referenced[slot] = 1;
+                    return value;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return 0;
+        }
+
+        // Returns the replaced value, 0 if the key is new
+        int put(int key, int value) {
+            int slot = spread(key, mask);
+            while (values[slot] != 0) {
+                if (keys[slot] == key) {
+                    int previous = values[slot];
+                    values[slot] = value;
+                    referenced[slot] = 1;
+                    return previous;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (size >= capacity) {
+                evictOne();
+                return put(key, value); // The eviction may have shifted the free slot
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            referenced[slot] = 1;
+            size++;
+            return 0;
+        }
+
+        @Override
+        int home(int slot) {
+            return spread(keys[slot], mask);
+        }
+
+        @Override
+        void move(int from, int to) {
+            keys[to] = keys[from];
+            values[to] = values[from];
+            referenced[to] = referenced[from];
+        }
+    }
+
+    private final class Ipv6Table extends Table {
+        final long[] high;
+        final long[] low;
+
+        Ipv6Table(int slots, int capacity) {
+            super(slots, capacity);
+            this.high = new long[slots];
+            this.low = new long[slots];
+        }
+
+        int get(long keyHigh, long keyLow) {
+            int slot = spread(keyHigh ^ Long.rotateLeft(keyLow, 32), mask);
+            for (int probes = 0; probes <= mask; probes++) {
+                int value = values[slot];
+                if (value == 0) {
+                    return 0;
+                }
+                if (high[slot] == keyHigh && low[slot] == keyLow) {
+                    referenced[slot] = 1;
+                    return value;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return 0;
+        }
+
+        int put(long keyHigh, long keyLow, int value) {
+            int slot = spread(keyHigh ^ Long.rotateLeft(keyLow, 32), mask);
+            while (values[slot] != 0) {
+                if (high[slot] == keyHigh && low[slot] == keyLow) {
+                    int previous = values[slot];
+                    values[slot] = value;
+                    referenced[slot] = 1;
+                    return previous;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (size >= capacity) {
+                evictOne();
+                return put(keyHigh, keyLow, value);
+            }
+            high[slot] = keyHigh;
+            low[slot] = keyLow;
+            values[slot] = value;
+            referenced[slot] = 1;
+            size++;
+            return 0;
+        }
+
+        @Override
+        int home(int slot) {
+            return spread(high[slot] ^ Long.rotateLeft(low[slot], 32), mask);
+        }
+
+        @Override
+        void move(int from, int to) {
+            high[to] = high[from];
+            low[to] = low[from];
+            values[to] = values[from];
+            referenced[to] = referenced[from];
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package net.fyrxlab.solverMOTD;
+
+import org.bukkit.event.server.ServerListPingEvent;
+
+/**
+ * Condition of a MOTD rule, e.g. "online >= max * 0.9" or "%server_tps_1% < 18 and online > 0".
+ * Compiled once per reload into a tree of nodes over doubles: evaluating it on a ping reads the event
+ * counters and the numeric values of the current snapshot, without parsing, boxing or allocating.
+ * <p>
+ * Supports numbers, "online", "max", %placeholders%, + - * / %, comparisons (&lt; &lt;= &gt; &gt;= == !=),
+ * "and"/"&amp;&amp;", "or"/"||", "not"/"!" and parentheses. A comparison is 1 when true and 0 when false,
+ * any non-zero value counts as true. A placeholder that isn't a number is NaN, so comparisons with it are false.
+ */
+public abstract class RuleExpression {
+
+    /**
+     * Evaluates the expression for a ping
+     * @param event Ping being answered
+     * @param snapshot Current placeholder values
+     * @return Value of the expression
+     */
+    public abstract double evaluate(ServerListPingEvent event, PlaceholderSnapshot snapshot);
+
+    /**
+     * @param event Ping being answered
+     * @param snapshot Current placeholder values
+     * @return Whether the expression is true, i.e. non-zero and not NaN
+     */
+    public final boolean test(ServerListPingEvent event, PlaceholderSnapshot snapshot) {
+        return isTrue(evaluate(event, snapshot));
+    }
+
+    private static boolean isTrue(double value) {
+        return value != 0 && !Double.isNaN(value);
+    }
+
+    /**
+     * Compiles a rule condition
+     * @param text Condition as written in config.yml
+     * @param registry Registry receiving the placeholders read by the condition
+     * @return Root of the expression tree
+     * @throws IllegalArgumentException If the condition is not valid
+     */
+    public static RuleExpression compile(String text, PlaceholderRegistry registry) {
+        Parser parser = new Parser(text, registry);
+        RuleExpression expression = parser.parseOr();
+        parser.skipSpaces();
+        if (parser.pos < text.length()) {
+            throw parser.error("Unexpected \"" + text.charAt(parser.pos) + "\"");
+        }
+        return expression;
+    }
+
+    // Recursive descent, lowest precedence first: or, and, not, comparison, sum, product, unary
+    private static final class Parser {
+        private final String text;
+        private final PlaceholderRegistry registry;
+        private int pos;
+
+        Parser(String text, PlaceholderRegistry registry) {
+            this.text = text;
+            this.registry = registry;
+        }
+
+        RuleExpression parseOr() {
+            RuleExpression left = parseAnd();
+            while (accept("||") || acceptWord("or")) {
+                left = fold(new Or(left, parseAnd()));
+            }
+            return left;
+        }
+
+        RuleExpression parseAnd() {
+            RuleExpression left = parseNot();
+            while (accept("&&") || acceptWord("and")) {
+                left = fold(new And(left, parseNot()));
+            }
+            return left;
+        }
+
+        RuleExpression parseNot() {
+            if (acceptWord("not") || (peek('!') && !peekAt(1, '=') && accept("!"))) {
+                return fold(new Not(parseNot()));
+            }
+            return parseComparison();
+        }
+
+        RuleExpression parseComparison() {
+            RuleExpression left = parseSum();
+            // Two char operators first, so "<=" isn't read as "<"
+            for (int i = 0; i < COMPARISONS.length; i++) {
+                if (accept(COMPARISONS[i])) {
+                    return fold(new Binary(COMPARISON_CODES[i], left, parseSum()));
+                }
+            }
+            return left;
+        }
+
+        RuleExpression parseSum() {
+            RuleExpression left = parseProduct();
+            while (true) {
+                if (accept("+")) {
+                    left = fold(new Binary('+', left, parseProduct()));
+                } else if (accept("-")) {
+                    left = fold(new Binary('-', left, parseProduct()));
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        RuleExpression parseProduct() {
+            RuleExpression left = parseUnary();
+            while (true) {
+                if (accept("*")) {
+                    left = fold(new Binary('*', left, parseUnary()));
+                } else if (accept("/")) {
+                    left = fold(new Binary('/', left, parseUnary()));
+                } else if (peek('%') && !startsPlaceholder()) {
+                    pos++;
+                    left = fold(new Binary('%', left, parseUnary()));
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        RuleExpression parseUnary() {
+            if (accept("-")) {
+                return fold(new Binary('-', new Constant(0), parseUnary()));
+            }
+            if (accept("(")) {
+                RuleExpression inner = parseOr();
+                if (!accept(")")) {
+                    throw error("Missing \")\"");
+                }
+                return inner;
+            }
+            skipSpaces();
+            if (pos >= text.length()) {
+                throw error("Unexpected end of condition");
+            }
+            char c = text.charAt(pos);
+            if (Character.isDigit(c) || c == '.') {
+                return parseNumber();
+            }
+            if (c == '%') {
+                return parsePlaceholder();
+            }
+            if (Character.isLetter(c)) {
+                int start = pos;
+                while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+                    pos++;
+                }
+                String word = text.substring(start, pos);
+                if (word.equals("online")) {
+                    return new Online();
+                }
+                if (word.equals("max")) {
+                    return new Max();
+                }
+                if (word.equals("true") || word.equals("false")) {
+                    return new Constant(word.equals("true") ? 1 : 0);
+                }
+                pos = start;
+                throw error("Unknown value \"" + word + "\"");
+            }
+            throw error("Unexpected \"" + c + "\"");
+        }
+
+        private RuleExpression parseNumber() {
+            int start = pos;
+            while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                pos++;
+            }
+            try {
+                return new Constant(Double.parseDouble(text.substring(start, pos)));
+            } catch (NumberFormatException e) {
+                pos = start;
+                throw error("Invalid number");
+            }
+        }
+
+        private RuleExpression parsePlaceholder() {
+            int close = text.indexOf('%', pos + 1);
+            if (close < 0) {
+                throw error("Missing closing %");
+            }
+            if (!registry.isPapiEnabled()) {
+                throw error("PlaceholderAPI is not enabled");
+            }
+            String token = text.substring(pos, close + 1);
+            pos = close + 1;
+            return new Placeholder(registry.slot(token));
+        }
+
+        // A % directly followed by an identifier and a closing % reads as a placeholder, not a modulo
+        private boolean startsPlaceholder() {
+            int close = text.indexOf('%', pos + 1);
+            if (close < 0 || close == pos + 1) {
+                return false;
+            }
+            for (int i = pos + 1; i < close; i++) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    return false;
+                }
+            }
+            return Character.isLetter(text.charAt(pos + 1));
+        }
+
+        void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private boolean peek(char c) {
+            skipSpaces();
+            return pos < text.length() && text.charAt(pos) == c;
+        }
+
+        private boolean peekAt(int offset, char c) {
+            return pos + offset < text.length() && text.charAt(pos + offset) == c;
+        }
+
+        private boolean accept(String token) {
+            skipSpaces();
+            if (text.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        // Keywords must not be the start of a longer word
+        private boolean acceptWord(String word) {
+            skipSpaces();
+            int end = pos + word.length();
+            if (text.regionMatches(true, pos, word, 0, word.length())
+                    && (end >= text.length() || !Character.isLetterOrDigit(text.charAt(end)))) {
+                pos = end;
+                return true;
+            }
+            return false;
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + (pos + 1) + " in \"" + text + "\"");
+        }
+    }
+
+    // Comparison operators and the operator code each one is stored as
+    private static final String[] COMPARISONS = {"<=", ">=", "==", "!=", "<", ">"};
+    private static final char[] COMPARISON_CODES = {'L', 'G', 'E', 'N', '<', '>'};
+
+    // Nodes whose inputs are all constants are evaluated once at compile time
+    private static RuleExpression fold(RuleExpression expression) {
+        if (expression.isConstant()) {
+            return new Constant(expression.evaluate(null, null));
+        }
+        return expression;
+    }
+
+    boolean isConstant() {
+        return false;
+    }
+
+    private static final class Constant extends RuleExpression {
+        private final double value;
+
+        Constant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double evaluate(ServerListPingEvent event, PlaceholderSnapshot snapshot) {
+            return value;
+        }
+
+        @Override
+        boolean isConstant() {
+            return true;
+        }
+    }
+
+    private static final class Online extends RuleExpression {
+        @Override
+        public double evaluate(ServerListPingEvent event, PlaceholderSnapshot snapshot) {
+            return event.getNumPlayers();
+        }
+    }
+
+    private static final class Max extends RuleExpression {
+        @Override
+        public double evaluate(ServerListPingEvent event, PlaceholderSnapshot snapshot) {
+            return event.getMaxPlayers();
+        }
+    }
+
+    private static final class Placeholder extends RuleExpression {
+        private final int slot;
+
+        Placeholder(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public double evaluate(ServerListPingEvent event, PlaceholderSnapshot snapshot) {
+            return snapshot.getNumber(slot);
+        }
+    }
+
+    private static final class Not extends RuleExpression {
+        private final RuleExpression operand;
+
+        Not(RuleExpression operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public double evaluate(ServerListPingEvent event, PlaceholderSnapshot snapshot) {
+            return isTrue(operand.evaluate(event, snapshot)) ? 0 : 1;
+        }
+
+        @Override
+        boolean isConstant() {
+            return operand.isConstant();
+        }
+    }
+
+    private static final class And extends RuleExpression {
+        private final RuleExpression left;
+        private final RuleExpression right;
+
+        And(RuleExpression left, RuleExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public double evaluate(ServerListPingEvent event, PlaceholderSnapshot snapshot) {
+            return isTrue(left.evaluate(event, snapshot)) && isTrue(right.evaluate(event, snapshot)) ? 1 : 0;
+        }
+
+        @Override
+        boolean isConstant() {
+            return left.isConstant() && right.isConstant();
+        }
+    }
+
+    private static final class Or extends RuleExpression {
+        private final RuleExpression left;
+        private final RuleExpression right;
+
+        Or(RuleExpression left, RuleExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public double evaluate(ServerListPingEvent event, PlaceholderSnapshot snapshot) {
+            return isTrue(left.evaluate(event, snapshot)) || isTrue(right.evaluate(event, snapshot)) ? 1 : 0;
+        }
+
+        @Override
+        boolean isConstant() {
+            return left.isConstant() && right.isConstant();
+        }
+    }
+
+    // Arithmetic and comparisons: '<', '>', L (<=), G (>=), E (==), N (!=)
+    private static final class Binary extends RuleExpression {
+        private final char operator;
+        private final RuleExpression left;
+        private final RuleExpression right;
+
+        Binary(char operator, RuleExpression left, RuleExpression right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public double evaluate(ServerListPingEvent event, PlaceholderSnapshot snapshot) {
+            double a = left.evaluate(event, snapshot);
+            double b = right.evaluate(event, snapshot);
+            switch (operator) {
+                case '+':
+                    return a + b;
+                case '-':
+                    return a - b;
+                case '*':
+                    return a * b;
+                case '/':
+                    return a / b;
+                case '%':
+                    return a % b;
+                case '<':
+                    return a < b ? 1 : 0;
+                case '>':
+                    return a > b ? 1 : 0;
+                case 'L':
+                    return a <= b ? 1 : 0;
+                case 'G':
+                    return a >= b ? 1 : 0;
+                case 'E':
+                    return a == b ? 1 : 0;
+                default:
+                    return a != b && !Double.isNaN(a) && !Double.isNaN(b) ? 1 : 0;
+            }
+        }
+
+        @Override
+        boolean isConstant() {
+            return left.isConstant() && right.isConstant();
+        }
+    }
+}
@@ -2,20 +2,18 @@
 package net.fyrxlab.solverMOTD;
 
 // Import required dependencies
-import me.clip.placeholderapi.PlaceholderAPI; // PlaceholderAPI integration
-import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
-import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.minimessage.MiniMessage;
-import net.kyori.adventure.text.Component;
 import net.fyrxlab.solverMOTD.org.bstats.bukkit.Metrics;
-import org.bukkit.ChatColor; // Minecraft color codes handling
 import org.bukkit.command.Command; // Command handling
 import org.bukkit.command.CommandSender; // Command sender handling
 import org.bukkit.configuration.file.YamlConfiguration; // YAML configuration handling
 import org.bukkit.event.EventHandler; // Event handler annotation
+import org.bukkit.event.EventPriority; // Listener ordering
 import org.bukkit.event.Listener; // Event listener interface
+import org.bukkit.event.player.PlayerJoinEvent; // Player join event
 import org.bukkit.event.server.ServerListPingEvent; // Server ping/MOTD event
 import org.bukkit.plugin.java.JavaPlugin; // Base plugin class
+import org.bukkit.scheduler.BukkitTask; // Scheduled task handle
+import org.bukkit.util.CachedServerIcon; // Preloaded server list icon
 import org.yaml.snakeyaml.DumperOptions; // YAML formatting options
 import org.yaml.snakeyaml.Yaml; // YAML parser/generator
 
@@ -29,28 +27,62 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 
 // Main plugin class extending JavaPlugin and implementing event listener
 public final class SolverMOTD extends JavaPlugin implements Listener {
 
     // Configuration variables
-    private final MiniMessage miniMessage = MiniMessage.miniMessage();
     private boolean papiEnabled; // Flag for PlaceholderAPI availability
+    private volatile MotdPool pool; // Compiled MOTD variants, swapped on every reload
+    private volatile ColorFormatter formatter; // Color codes of the MOTD and messages.yml
+    private BukkitTask refreshTask; // Background placeholder refresher of the current pool
+    private volatile BukkitTask scheduleTask; // Fires at the next schedule transition of the current pool
+    private BukkitTask limiterTask; // Frees the refilled rate limit buckets of the current pool
+    private ExecutorService placeholderExecutor; // Runs PlaceholderAPI calls against their time budget
+    private StateFile state; // Maintenance flag, kept across restarts in state.yml
+    private ReturningPlayers returning; // Last player name per address, kept in returning.dat, null when disabled
+    private BukkitTask maintenanceTask; // Turns a timed maintenance off
+    private volatile PingStats stats; // Ping counters and latencies, null when disabled
+    private BukkitTask statsTask; // Snapshots the stats every minute
+    private MetricsExporter exporter; // Prometheus endpoint, null when disabled
+    private String exporterBinding; // "address:port" the exporter listens on
+    private volatile PingLog pingLog; // Last pings in the pings.dat ring file, null when disabled
     private YamlConfiguration messages; // Messages configuration
     private File messagesFile; // Messages file reference
     private CommentPreservingYaml commentYaml; // Custom YAML handler for preserving comments
 
+    // bStats chart values, prepared on reload and on every ping so the bStats thread only reads them
+    private final LongAdder chartPings = new LongAdder(); // Pings since the last submission
+    private volatile String chartRenderMode = "Legacy";
+    private volatile String chartPlaceholderApi = "Not installed";
+
     @Override
     public void onEnable() {
 
         // bStats ID
         int pluginId = 25243;
         Metrics metrics = new Metrics(this, pluginId);
+        metrics.addCustomChart(new Metrics.SimplePie("render_mode", () -> chartRenderMode));
+        metrics.addCustomChart(new Metrics.SimplePie("placeholderapi", () -> chartPlaceholderApi));
+        metrics.addCustomChart(new Metrics.SingleLineChart("pings",
+                () -> (int) Math.min(Integer.MAX_VALUE, chartPings.sumThenReset())));
         getLogger().info("SolverMOTD has connected with bStats");
+        // Messages may be needed before config.yml is compiled
+        formatter = ColorFormatter.forSetting("auto", getServer().getBukkitVersion());
+
         // Initialize custom YAML handler for comment preservation
         commentYaml = new CommentPreservingYaml();
 
@@ -83,6 +115,237 @@ public final class SolverMOTD extends JavaPlugin implements Listener {
         } else {
             getLogger().warning("PlaceholderAPI not found, Solver will not be able to use variables.");
         }
+
+        // Daemon threads, a blocked expansion must never keep the server from stopping
+        placeholderExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "SolverMOTD-Placeholder");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Sized once, a new size starts the ring file over on the next restart
+        if (getConfig().getBoolean("ping_log.enabled", false)) {
+            try {
+                pingLog = PingLog.open(new File(getDataFolder(), "pings.dat"), new File(getDataFolder(), "pings.names"),
+                        Math.max(16, getConfig().getInt("ping_log.records", 262144)));
+                getLogger().info("Logging the last " + pingLog.getCapacity() + " pings to pings.dat ("
+                        + pingLog.getFileBytes() / 1024 + " KB).");
+            } catch (IOException e) {
+                getLogger().warning("Error while opening pings.dat, pings won't be logged: " + e.getMessage());
+            }
+        }
+
+        // Compile the MOTD once, pings only read the compiled pool
+        compileMotd();
+
+        // Restore maintenance from the last run, a timed one may have ended while the server was down
+        state = new StateFile(new File(getDataFolder(), "state.yml"), getLogger());
+        state.load();
+        if (state.getMaintenanceUntil() != 0L) {
+            setMaintenance(state.getMaintenanceUntil() > System.currentTimeMillis() ? state.getMaintenanceUntil() : 0L);
+        }
+    }
+
+    /**
+     * Switches maintenance on or off. The ping handler only reads the state, so this is a single
+     * volatile write; state.yml is written on an async task.
+     * @param until End of the maintenance in milliseconds, Long.MAX_VALUE without end, 0 to turn it off
+     */
+    private void setMaintenance(long until) {
+        state.setMaintenanceUntil(until);
+        if (maintenanceTask != null) {
+            maintenanceTask.cancel();
+            maintenanceTask = null;
+        }
+        if (until != 0L && until != Long.MAX_VALUE) {
+            long ticks = Math.max(1L, (until - System.currentTimeMillis() + 49L) / 50L);
+            maintenanceTask = getServer().getScheduler().runTaskLater(this, () -> {
+                maintenanceTask = null;
+                setMaintenance(0L);
+                getLogger().info("Maintenance ended.");
+            }, ticks);
+        }
+        getServer().getScheduler().runTaskAsynchronously(this, state::save);
+    }
+
+    private boolean isMaintenance() {
+        long until = state == null ? 0L : state.getMaintenanceUntil();
+        return until != 0L && (until == Long.MAX_VALUE || System.currentTimeMillis() < until);
+    }
+
+    /**
+     * Compiles config.yml into an immutable pool of templates and publishes it for the ping handler
+     */
+    private void compileMotd() {
+        long compileStart = System.nanoTime();
+        // Stats outlive reloads so their minute and hour windows stay meaningful, disabling them drops them
+        if (getConfig().getBoolean("stats.enabled", true)) {
+            if (stats == null) {
+                PingStats created = new PingStats();
+                stats = created;
+                statsTask = getServer().getScheduler().runTaskTimerAsynchronously(this, created::tick, 1200L, 1200L);
+            }
+        } else if (stats != null) {
+            statsTask.cancel();
+            statsTask = null;
+            stats = null;
+        }
+        updateReturning();
+        MotdCompiler compiler = new MotdCompiler(getConfig(), papiEnabled, NativePlaceholder.defaults(getServer(), returning),
+                returning, placeholderExecutor, stats, getServer().getBukkitVersion(), getLogger());
+        MotdPool compiled = compiler.compile();
+        formatter = compiler.getFormatter();
+        if (stats != null) {
+            stats.record(PingStats.RELOAD, System.nanoTime() - compileStart);
+        }
+
+        // Resolve once now so the first pings have values, then keep refreshing off the ping path
+        if (refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+        PlaceholderRefresher refresher = compiled.getRefresher();
+        chartRenderMode = getConfig().getBoolean("use_minimessage", false) ? "MiniMessage" : "Legacy";
+        chartPlaceholderApi = !papiEnabled ? "Not installed"
+                : !getConfig().getBoolean("use_papi", true) ? "Installed, disabled"
+                : refresher.isEmpty() ? "Installed, unused" : "Used";
+        if (!refresher.isEmpty()) {
+            refresher.refreshAll();
+            refreshTask = getServer().getScheduler().runTaskTimerAsynchronously(this, refresher, 1L, 1L);
+        }
+
+        // Open the current schedule window before the first ping, then wake up at every transition
+        if (scheduleTask != null) {
+            scheduleTask.cancel();
+            scheduleTask = null;
+        }
+        long nextTransition = compiled.applySchedule(System.currentTimeMillis());
+        // Names of the new variants go to the ping log before a ping can log them
+        PingLog log = pingLog;
+        if (log != null) {
+            try {
+                log.register(compiled.getVariants());
+            } catch (IOException e) {
+                getLogger().warning("Error while writing pings.names, new variants are exported by id: " + e.getMessage());
+            }
+        }
+        pool = compiled;
+        scheduleTransition(compiled, nextTransition);
+
+        // Free refilled buckets and report the throttled pings once a minute
+        if (limiterTask != null) {
+            limiterTask.cancel();
+            limiterTask = null;
+        }
+        RateLimiter limiter = compiled.getLimiter();
+        if (limiter != null) {
+            boolean report = getConfig().getBoolean("rate_limit.report", true);
+            long[] reported = new long[1];
+            limiterTask = getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
+                int active = limiter.sweep(System.currentTimeMillis());
+                long throttled = limiter.getThrottled();
+                if (report && throttled > reported[0]) {
+                    getLogger().info("Throttled " + (throttled - reported[0]) + " ping(s) in the last minute, "
+                            + throttled + " since the last reload, " + active + " address(es) still limited.");
+                }
+                reported[0] = throttled;
+            }, 1200L, 1200L);
+        }
+
+        updateExporter();
+
+        // Decode the server icons off the main thread, pings show them as soon as they are ready
+        File iconFolder = new File(getDataFolder(), "icons");
+        if (!iconFolder.exists() && !iconFolder.mkdirs()) {
+            getLogger().warning("Could not create the icons folder.");
+        }
+        if (compiled.hasIcons()) {
+            getServer().getScheduler().runTaskAsynchronously(this, () -> compiled.setIcons(
+                    IconPool.load(compiled.getVariants(), iconFolder, getServer(), getLogger())));
+        }
+    }
+
+    /**
+     * Creates or drops the returning players to match config.yml. The tables are sized when created,
+     * a new capacity applies on the next restart.
+     */
+    private void updateReturning() {
+        File file = new File(getDataFolder(), "returning.dat");
+        if (!getConfig().getBoolean("returning.enabled", false)) {
+            if (returning != null) {
+                saveReturning(file);
+                returning = null;
+            }
+            return;
+        }
+        if (returning != null) {
+            return;
+        }
+        int capacity = Math.max(16, getConfig().getInt("returning.capacity", 50000));
+        returning = new ReturningPlayers(capacity);
+        try {
+            returning.load(file);
+        } catch (IOException e) {
+            getLogger().warning("Error while loading returning.dat: " + e.getMessage());
+        }
+        getLogger().info("Remembering up to " + capacity + " addresses per IP version in "
+                + returning.getTableBytes() / 1024 + " KB, " + returning.size() + " loaded.");
+    }
+
+    // Snapshot the returning players, the tables are fixed size so this stays small
+    private void saveReturning(File file) {
+        if (returning.size() > 0) {
+            try {
+                returning.save(file);
+            } catch (IOException e) {
+                getLogger().warning("Error while saving returning.dat: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Starts, moves or stops the metrics endpoint to match config.yml
+     */
+    private void updateExporter() {
+        boolean enabled = getConfig().getBoolean("metrics_exporter.enabled", false);
+        String address = getConfig().getString("metrics_exporter.address", "127.0.0.1");
+        int port = getConfig().getInt("metrics_exporter.port", 9464);
+        String binding = address + ":" + port;
+        if (exporter != null && (!enabled || !binding.equals(exporterBinding))) {
+            exporter.stop();
+            exporter = null;
+        }
+        if (!enabled || exporter != null) {
+            return;
+        }
+        if (stats == null) {
+            getLogger().warning("The metrics exporter only serves render cache metrics while stats are disabled.");
+        }
+        try {
+            exporter = MetricsExporter.start(address, port, () -> stats, () -> pool);
+            exporterBinding = binding;
+            getLogger().info("Serving metrics on http://" + binding + "/metrics");
+        } catch (IOException | IllegalArgumentException e) {
+            getLogger().warning("Could not start the metrics exporter on " + binding + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Schedules the single timer swapping the scheduled variant at the next transition
+     * @param target Pool whose schedule is followed
+     * @param time Time of the transition in milliseconds, Long.MAX_VALUE when there is none
+     */
+    private void scheduleTransition(MotdPool target, long time) {
+        if (time == Long.MAX_VALUE) {
+            return;
+        }
+        long ticks = Math.max(1L, (time - System.currentTimeMillis() + 49L) / 50L);
+        scheduleTask = getServer().getScheduler().runTaskLaterAsynchronously(this, () -> {
+            if (pool != target) {
+                return; // Reloaded meanwhile, the new pool has its own timer
+            }
+            scheduleTransition(target, target.applySchedule(System.currentTimeMillis()));
+        }, ticks);
     }
 
     /**
@@ -91,6 +354,8 @@ public final class SolverMOTD extends JavaPlugin implements Listener {
      * @param updater Consumer function for applying updates
      */
     private void updateYamlFile(String fileName, Consumer<Map<String, Object>> updater) {
+        ConfigFileEvent recording = new ConfigFileEvent();
+        recording.begin();
         File file = new File(getDataFolder(), fileName);
 
         // Create file from resource if it doesn't exist
@@ -100,6 +365,7 @@ public final class SolverMOTD extends JavaPlugin implements Listener {
         }
 
         // Read existing header comments
+        long bytesRead = file.length();
         String header = readHeader(file);
 
         // Load current configuration
@@ -135,6 +401,12 @@ public final class SolverMOTD extends JavaPlugin implements Listener {
         } catch (IOException e) {
             getLogger().warning("Error while saving " + fileName + ": " + e.getMessage());
         }
+        if (recording.shouldCommit()) {
+            recording.file = fileName;
+            recording.bytesRead = bytesRead;
+            recording.bytesWritten = file.length();
+            recording.commit();
+        }
     }
 
     /**
@@ -161,36 +433,104 @@ public final class SolverMOTD extends JavaPlugin implements Listener {
     @EventHandler
     public void onServerPing(ServerListPingEvent event) {
 
-        // Get Config
-        boolean useMiniMessage = getConfig().getBoolean("use_minimessage", false);
-        boolean usePapi = getConfig().getBoolean("use_papi", true);
-
-        // Get MOTD lines from config
-        String line1 = getConfig().getString("motd.line1", "&a&lSolver&c&lMOTD &3Plugin &2[1.8 - 1.21] &4❤");
-        String line2 = getConfig().getString("motd.line2", "&aSetup your &eConfig.yml &afile!");
-
-        // Apply PlaceholderAPI if available and enabled
-        if (papiEnabled && usePapi) {
-            line1 = PlaceholderAPI.setPlaceholders(null, line1);
-            line2 = PlaceholderAPI.setPlaceholders(null, line2);
+        // Everything was compiled at reload, placeholder values come from the refresher snapshot
+        MotdPool current = pool;
+        if (current == null) {
+            return; // Still enabling, keep the vanilla MOTD
         }
-
-        // Format and set MOTD
-        String finalMotd;
-        if (useMiniMessage) {
-            // If MiniMessage is active on config.yml
-            Component motdComponent = miniMessage.deserialize(line1 + "\n" + line2);
-            finalMotd = LegacyComponentSerializer.legacySection().serialize(motdComponent);
+        chartPings.increment();
+        PingEvent recording = new PingEvent(); // Off by default, shouldCommit() is then a constant false
+        recording.begin(); // Flight Recorder keeps its own clock
+        PingStats pingStats = stats;
+        PingLog log = pingLog;
+        // Only the stats and the ping log need the duration, without them nothing reads the clock
+        long started = pingStats != null || log != null ? System.nanoTime() : 0L;
+        if (pingStats != null) {
+            pingStats.count(PingStats.PINGS);
+        }
+        // Throttled pings are counted too, floods are what the analytics are for
+        PingAnalytics analytics = current.getAnalytics();
+        if (analytics != null) {
+            analytics.record(event.getAddress(), System.currentTimeMillis());
+        }
+        // Pingers over their rate get a pre-rendered MOTD, nothing is resolved or rendered for them
+        RateLimiter limiter = current.getLimiter();
+        if (limiter != null && !limiter.tryAcquire(event.getAddress(), System.currentTimeMillis())) {
+            event.setMotd(current.getThrottledMotd());
+            logPing(log, event, PingLog.THROTTLED, started);
+            if (pingStats != null) {
+                pingStats.count(PingStats.THROTTLED);
+                pingStats.record(PingStats.TOTAL, System.nanoTime() - started);
+            }
+            commitPing(recording, null);
+            return;
+        }
+        MotdVariant variant;
+        if (isMaintenance()) {
+            variant = current.getMaintenance();
+            if (current.getMaintenanceMaxPlayers() >= 0) {
+                event.setMaxPlayers(current.getMaintenanceMaxPlayers()); // Before rendering, {max} shows it too
+            }
         } else {
-            // If MiniMessage is desactivated it will use Legacy (&)
-            finalMotd = ChatColor.translateAlternateColorCodes('&', line1) + "\n" +
-                    ChatColor.translateAlternateColorCodes('&', line2);
+            variant = current.select(event);
+        }
+        event.setMotd(current.render(variant, event));
+        logPing(log, event, variant.getLogId(), started);
+        ConversionTracker tracker = current.getTracker();
+        if (tracker != null) {
+            tracker.impression(event.getAddress(), variant);
+        }
+        CachedServerIcon icon = current.pickIcon(variant);
+        if (icon != null) {
+            try {
+                event.setServerIcon(icon);
+            } catch (UnsupportedOperationException ignored) {
+                // Legacy pings have no icon
+            }
+        }
+        if (pingStats != null) {
+            pingStats.record(PingStats.TOTAL, System.nanoTime() - started);
+        }
+        commitPing(recording, variant);
+    }
+
+    // Fills the ping event only when a recording wants it
+    private static void commitPing(PingEvent recording, MotdVariant variant) {
+        if (recording.shouldCommit()) {
+            recording.throttled = variant == null;
+            recording.variant = variant == null ? "" : variant.getName();
+            recording.renderMode = variant == null ? "" : variant.getTemplate().getMode().name();
+            recording.commit();
         }
-        event.setMotd(finalMotd);
     }
 
 
 
+    // Appends to the ring file, a memory write: the operating system does the disk I/O
+    private static void logPing(PingLog log, ServerListPingEvent event, int variant, long started) {
+        if (log != null) {
+            log.append(System.currentTimeMillis(), event.getAddress(), variant, System.nanoTime() - started);
+        }
+    }
+
+    // Remember who joined from which address, for {player} and the returning player MOTD,
+    // and credit the join to the MOTD variant the address was last shown
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        InetSocketAddress address = event.getPlayer().getAddress();
+        if (address == null || address.getAddress() == null) {
+            return;
+        }
+        ReturningPlayers players = returning;
+        if (players != null) {
+            players.record(address.getAddress(), event.getPlayer().getName());
+        }
+        MotdPool current = pool;
+        if (current != null && current.getTracker() != null) {
+            current.getTracker().join(address.getAddress());
+        }
+    }
+
     // Retrieve formatted messages from messages.yml
     private String getMessage(String path) {
         if (messages == null) {
@@ -198,7 +538,7 @@ public final class SolverMOTD extends JavaPlugin implements Listener {
         }
         String msg = messages.getString(path, "&cMessage not found: " + path);
         msg = msg.replace("{prefix}", messages.getString("prefix", ""));
-        return ChatColor.translateAlternateColorCodes('&', msg);
+        return formatter.format(msg);
     }
 
     // Handle plugin commands
@@ -220,9 +560,50 @@ public final class SolverMOTD extends JavaPlugin implements Listener {
                     }
                     updateYamlFile("config.yml", map -> reloadConfig());
                     updateYamlFile("messages.yml", map -> messages = YamlConfiguration.loadConfiguration(messagesFile));
+                    compileMotd();
                     sender.sendMessage(getMessage("reload_success"));
                     break;
 
+                case "maintenance":
+                    if (!sender.hasPermission("solvermotd.maintenance")) {
+                        sender.sendMessage(getMessage("reload_no_permission").replace("{permission}", "solvermotd.maintenance"));
+                        return true;
+                    }
+                    handleMaintenance(sender, args);
+                    break;
+
+                case "conversions":
+                    if (!sender.hasPermission("solvermotd.stats")) {
+                        sender.sendMessage(getMessage("reload_no_permission").replace("{permission}", "solvermotd.stats"));
+                        return true;
+                    }
+                    sendConversions(sender);
+                    break;
+
+                case "analytics":
+                    if (!sender.hasPermission("solvermotd.stats")) {
+                        sender.sendMessage(getMessage("reload_no_permission").replace("{permission}", "solvermotd.stats"));
+                        return true;
+                    }
+                    sendAnalytics(sender);
+                    break;
+
+                case "log":
+                    if (!sender.hasPermission("solvermotd.stats")) {
+                        sender.sendMessage(getMessage("reload_no_permission").replace("{permission}", "solvermotd.stats"));
+                        return true;
+                    }
+                    handleLog(sender, args);
+                    break;
+
+                case "stats":
+                    if (!sender.hasPermission("solvermotd.stats")) {
+                        sender.sendMessage(getMessage("reload_no_permission").replace("{permission}", "solvermotd.stats"));
+                        return true;
+                    }
+                    sendStats(sender);
+                    break;
+
                 case "help":
                     sender.sendMessage(getMessage("help_message"));
                     break;
@@ -236,8 +617,231 @@ public final class SolverMOTD extends JavaPlugin implements Listener {
         return false;
     }
 
+    // Handle /smotd conversions: impressions, joins and conversion rate of every variant
+    private void sendConversions(CommandSender sender) {
+        MotdPool current = pool;
+        ConversionTracker tracker = current == null ? null : current.getTracker();
+        if (tracker == null) {
+            sender.sendMessage(getMessage("conversions_disabled"));
+            return;
+        }
+        sender.sendMessage(getMessage("conversions_header"));
+        for (MotdVariant variant : current.getVariants()) {
+            long impressions = tracker.getImpressions(variant);
+            long joins = tracker.getJoins(variant);
+            double rate = impressions == 0 ? 0 : joins * 100.0 / impressions;
+            sender.sendMessage(getMessage("conversions_line")
+                    .replace("{variant}", variant.getName())
+                    .replace("{impressions}", Long.toString(impressions))
+                    .replace("{joins}", Long.toString(joins))
+                    .replace("{rate}", String.format(Locale.ROOT, "%.1f", rate)));
+        }
+    }
+
+    // Handle /smotd stats: rates and stage latencies over the last minute and hour
+    private void sendStats(CommandSender sender) {
+        PingStats current = stats;
+        if (current == null) {
+            sender.sendMessage(getMessage("stats_disabled"));
+            return;
+        }
+        PingStats.Window minute = current.getMinute();
+        PingStats.Window hour = current.getHour();
+        if (minute == null) {
+            sender.sendMessage(getMessage("stats_warming_up"));
+            return;
+        }
+        sender.sendMessage(getMessage("stats_header").replace("{minutes}", Integer.toString(hour.getMinutes())));
+        String[] names = {"pings", "throttled", "papi calls", "legacy renders", "minimessage renders",
+                "legacy cache misses", "minimessage cache misses", "legacy pre-rendered", "minimessage pre-rendered"};
+        int[] counters = {PingStats.PINGS, PingStats.THROTTLED, PingStats.PAPI_CALLS, PingStats.RENDERS,
+                PingStats.RENDERS + 1, PingStats.FULL_RENDERS, PingStats.FULL_RENDERS + 1, PingStats.STATIC_RENDERS,
+                PingStats.STATIC_RENDERS + 1};
+        for (int i = 0; i < counters.length; i++) {
+            if (hour.getCount(counters[i]) == 0) {
+                continue;
+            }
+            sender.sendMessage(getMessage("stats_rate").replace("{name}", names[i])
+                    .replace("{minute}", String.format(Locale.ROOT, "%.2f", minute.getRate(counters[i])))
+                    .replace("{hour}", String.format(Locale.ROOT, "%.2f", hour.getRate(counters[i]))));
+        }
+        for (int stage = 0; stage < PingStats.STAGE_NAMES.length; stage++) {
+            for (PingStats.Window window : new PingStats.Window[]{minute, hour}) {
+                if (window.getSamples(stage) == 0) {
+                    continue;
+                }
+                sender.sendMessage(getMessage("stats_latency").replace("{stage}", PingStats.STAGE_NAMES[stage])
+                        .replace("{window}", window == minute ? "1m" : window.getMinutes() + "m")
+                        .replace("{p50}", formatNanos(window.getPercentile(stage, 0.5)))
+                        .replace("{p99}", formatNanos(window.getPercentile(stage, 0.99)))
+                        .replace("{p999}", formatNanos(window.getPercentile(stage, 0.999)))
+                        .replace("{samples}", Long.toString(window.getSamples(stage))));
+            }
+        }
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < 1_000L) {
+            return nanos + "ns";
+        }
+        if (nanos < 1_000_000L) {
+            return String.format(Locale.ROOT, "%.1fµs", nanos / 1e3);
+        }
+        return String.format(Locale.ROOT, "%.1fms", nanos / 1e6);
+    }
+
+    // Handle /smotd analytics: unique pingers of the current and last window, and the heaviest pingers
+    private void sendAnalytics(CommandSender sender) {
+        MotdPool current = pool;
+        PingAnalytics analytics = current == null ? null : current.getAnalytics();
+        if (analytics == null) {
+            sender.sendMessage(getMessage("analytics_disabled"));
+            return;
+        }
+        PingAnalytics.Window window = analytics.getCurrent();
+        sender.sendMessage(getMessage("analytics_current")
+                .replace("{minutes}", Long.toString((System.currentTimeMillis() - window.getStart()) / 60000L))
+                .replace("{pings}", Long.toString(window.getPings()))
+                .replace("{unique}", Long.toString(window.getUniquePingers())));
+        PingAnalytics.Window previous = analytics.getPrevious();
+        if (previous != null) {
+            sender.sendMessage(getMessage("analytics_previous")
+                    .replace("{pings}", Long.toString(previous.getPings()))
+                    .replace("{unique}", Long.toString(previous.getUniquePingers())));
+        }
+        for (PingAnalytics.Pinger pinger : window.getHeaviest()) {
+            sender.sendMessage(getMessage("analytics_line")
+                    .replace("{address}", pinger.getAddress().getHostAddress())
+                    .replace("{pings}", Long.toString(pinger.getPings())));
+        }
+    }
+
+    // Handle /smotd log export <from> [to], decoding the ring file on an async task
+    private void handleLog(CommandSender sender, String[] args) {
+        PingLog log = pingLog;
+        if (log == null) {
+            sender.sendMessage(getMessage("log_disabled"));
+            return;
+        }
+        if (args.length < 3 || !args[1].equalsIgnoreCase("export")) {
+            sender.sendMessage(getMessage("log_export_usage"));
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long from;
+        long to;
+        try {
+            from = parseLogTime(args[2], now);
+            to = args.length > 3 ? parseLogTime(args[3], now) : now + 1L;
+        } catch (IllegalArgumentException | DateTimeException e) {
+            sender.sendMessage(getMessage("log_export_usage"));
+            return;
+        }
+        File folder = new File(getDataFolder(), "exports");
+        File output = new File(folder, "pings-" + DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")
+                .format(LocalDateTime.now()) + ".csv");
+        getServer().getScheduler().runTaskAsynchronously(this, () -> {
+            String message;
+            try {
+                if (!folder.exists() && !folder.mkdirs()) {
+                    throw new IOException("Could not create the exports folder");
+                }
+                int count = log.export(from, to, output);
+                message = getMessage("log_export_done").replace("{count}", Integer.toString(count))
+                        .replace("{file}", "exports/" + output.getName());
+            } catch (IOException e) {
+                message = getMessage("log_export_failed").replace("{error}", String.valueOf(e.getMessage()));
+            }
+            String result = message;
+            getServer().getScheduler().runTask(this, () -> sender.sendMessage(result));
+        });
+    }
+
+    // A duration ago such as "30m", or a time such as "2025-12-24T18:00" in the server timezone
+    private static long parseLogTime(String text, long now) {
+        if (Character.isDigit(text.charAt(0)) && text.indexOf('-') < 0) {
+            return now - Durations.parse(text);
+        }
+        return MotdCompiler.parseTime(text, ZoneId.systemDefault());
+    }
+
+    // Handle /smotd maintenance [on|off] [duration]
+    private void handleMaintenance(CommandSender sender, String[] args) {
+        if (args.length < 2) {
+            sender.sendMessage(getMessage(isMaintenance() ? "maintenance_status_on" : "maintenance_status_off"));
+            return;
+        }
+        switch (args[1].toLowerCase()) {
+            case "on":
+                if (args.length < 3) {
+                    setMaintenance(Long.MAX_VALUE);
+                    sender.sendMessage(getMessage("maintenance_on"));
+                    return;
+                }
+                long duration;
+                try {
+                    duration = Durations.parse(args[2]);
+                } catch (IllegalArgumentException e) {
+                    sender.sendMessage(getMessage("maintenance_invalid_duration").replace("{duration}", args[2]));
+                    return;
+                }
+                setMaintenance(System.currentTimeMillis() + duration);
+                sender.sendMessage(getMessage("maintenance_on_timed").replace("{duration}", args[2]));
+                break;
+
+            case "off":
+                setMaintenance(0L);
+                sender.sendMessage(getMessage("maintenance_off"));
+                break;
+
+            default:
+                sender.sendMessage(getMessage("invalid_command"));
+                break;
+        }
+    }
+
     @Override
     public void onDisable() {
-        // Plugin shutdown logic (currently empty)
+        // Stop refreshing placeholders
+        if (refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+        if (scheduleTask != null) {
+            scheduleTask.cancel();
+            scheduleTask = null;
+        }
+        if (limiterTask != null) {
+            limiterTask.cancel();
+            limiterTask = null;
+        }
+        if (statsTask != null) {
+            statsTask.cancel();
+            statsTask = null;
+        }
+        if (exporter != null) {
+            exporter.stop();
+            exporter = null;
+        }
+        if (maintenanceTask != null) {
+            maintenanceTask.cancel();
+            maintenanceTask = null;
+        }
+        if (placeholderExecutor != null) {
+            placeholderExecutor.shutdownNow();
+        }
+        // Write the mapped ping records out before the plugin goes away
+        if (pingLog != null) {
+            PingLog log = pingLog;
+            pingLog = null;
+            try {
+                log.close();
+            } catch (IOException e) {
+                getLogger().warning("Error while closing pings.dat: " + e.getMessage());
+            }
+        }
+        if (returning != null) {
+            saveReturning(new File(getDataFolder(), "returning.dat"));
+        }
     }
 }
\ No newline at end of file
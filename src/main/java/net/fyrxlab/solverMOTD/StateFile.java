@@ -0,0 +1,64 @@
+package net.fyrxlab.solverMOTD;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Logger;
+
+/**
+ * Runtime state kept across restarts in state.yml, separate from config.yml so toggling it
+ * never rewrites or reloads the configuration.
+ * Values are set in memory first, {@link #save()} then writes whatever is current, so saves
+ * running late or out of order still leave the latest state on disk.
+ */
+public final class StateFile {
+
+    private final File file;
+    private final Logger logger;
+    private volatile long maintenanceUntil; // 0 when off, Long.MAX_VALUE when on without end
+
+    /**
+     * @param file state.yml in the plugin folder
+     * @param logger Logger used to report I/O errors
+     */
+    public StateFile(File file, Logger logger) {
+        this.file = file;
+        this.logger = logger;
+    }
+
+    /**
+     * Reads the saved state, a missing file means the defaults
+     */
+    public void load() {
+        if (!file.exists()) {
+            return;
+        }
+        YamlConfiguration yaml = YamlConfiguration.loadConfiguration(file);
+        maintenanceUntil = yaml.getBoolean("maintenance.enabled", false)
+                ? yaml.getLong("maintenance.until", Long.MAX_VALUE) : 0L;
+    }
+
+    /**
+     * Writes the current state, meant to run on an async task
+     */
+    public synchronized void save() {
+        long until = maintenanceUntil;
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("maintenance.enabled", until != 0L);
+        yaml.set("maintenance.until", until);
+        try {
+            yaml.save(file);
+        } catch (IOException e) {
+            logger.warning("Error while saving " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    public long getMaintenanceUntil() {
+        return maintenanceUntil;
+    }
+
+    public void setMaintenanceUntil(long maintenanceUntil) {
+        this.maintenanceUntil = maintenanceUntil;
+    }
+}
@@ -0,0 +1,74 @@
+package net.fyrxlab.solverMOTD;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class AliasTableTest {
+
+    // Share of picks per index over many random longs
+    private static double[] frequencies(AliasTable table, int size, int picks) {
+        SplittableRandom random = new SplittableRandom(3);
+        double[] counts = new double[size];
+        for (int i = 0; i < picks; i++) {
+            counts[table.pick(random.nextLong())]++;
+        }
+        for (int i = 0; i < size; i++) {
+            counts[i] /= picks;
+        }
+        return counts;
+    }
+
+    private static void assertFollowsWeights(double[] weights) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double[] shares = frequencies(new AliasTable(weights), weights.length, 2_000_000);
+        for (int i = 0; i < weights.length; i++) {
+            assertEquals(weights[i] / total, shares[i], 0.002, "index " + i);
+        }
+    }
+
+    @Test
+    void picksFollowTheWeights() {
+        assertFollowsWeights(new double[]{3, 1});
+        assertFollowsWeights(new double[]{1, 2, 3, 4, 5});
+        assertFollowsWeights(new double[]{0.001, 100, 0.5, 7, 7, 7, 1e-9});
+    }
+
+    @Test
+    void singleWeightAlwaysPicksIt() {
+        AliasTable table = new AliasTable(new double[]{0.25});
+        for (long bits : new long[]{0L, -1L, Long.MIN_VALUE, Long.MAX_VALUE, 0xFFFFFFFFL}) {
+            assertEquals(0, table.pick(bits));
+        }
+    }
+
+    @Test
+    void zeroWeightIsNeverPicked() {
+        double[] weights = {0, 5, 0, 1, 0};
+        AliasTable table = new AliasTable(weights);
+        // Every column at both ends of the threshold range
+        for (long column = 0; column < 1L << 32; column += 1L << 20) {
+            for (long low : new long[]{0L, 1L, 0x7FFFFFFFL, 0xFFFFFFFFL}) {
+                int picked = table.pick(column << 32 | low);
+                assertNotEquals(0.0, weights[picked], "bits " + Long.toHexString(column << 32 | low));
+            }
+        }
+    }
+
+    @Test
+    void equalWeightsPickTheColumnAlone() {
+        // Every column is full, so the high bits choose and the low bits never reach the alias
+        AliasTable table = new AliasTable(new double[]{1, 1, 1, 1});
+        for (int column = 0; column < 4; column++) {
+            long high = (long) column << 62 >>> 32;
+            assertEquals(column, table.pick(high << 32));
+            assertEquals(column, table.pick(high << 32 | 0xFFFFFFFFL));
+        }
+    }
+}
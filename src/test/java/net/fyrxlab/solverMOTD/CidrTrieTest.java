@@ -0,0 +1,193 @@
+package net.fyrxlab.solverMOTD;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CidrTrieTest {
+
+    private static CidrTrie trie(String... ranges) {
+        CidrTrie.Builder builder = new CidrTrie.Builder();
+        for (int i = 0; i < ranges.length; i++) {
+            builder.add(ranges[i], i);
+        }
+        return builder.build();
+    }
+
+    private static InetAddress address(String literal) throws UnknownHostException {
+        return InetAddress.getByName(literal);
+    }
+
+    @Test
+    void emptyTrieMatchesNothing() throws UnknownHostException {
+        CidrTrie trie = new CidrTrie.Builder().build();
+        assertTrue(trie.isEmpty());
+        assertEquals(-1, trie.lookup(address("10.0.0.1")));
+        assertEquals(-1, trie.lookup(null));
+    }
+
+    @Test
+    void mostSpecificBlockWins() throws UnknownHostException {
+        CidrTrie trie = trie("10.0.0.0/8", "10.1.0.0/16", "10.1.2.0/24", "10.1.2.3");
+        assertEquals(0, trie.lookup(address("10.200.0.1")));
+        assertEquals(1, trie.lookup(address("10.1.200.1")));
+        assertEquals(2, trie.lookup(address("10.1.2.200")));
+        assertEquals(3, trie.lookup(address("10.1.2.3")));
+        assertEquals(-1, trie.lookup(address("11.0.0.1")));
+    }
+
+    @Test
+    void blocksBranchingInsideAPrefixSplitIt() throws UnknownHostException {
+        // Added longest first, so the /16 splits the compressed path of the /24s
+        CidrTrie trie = trie("192.168.1.0/24", "192.168.200.0/24", "192.168.0.0/16");
+        assertEquals(0, trie.lookup(address("192.168.1.9")));
+        assertEquals(1, trie.lookup(address("192.168.200.9")));
+        assertEquals(2, trie.lookup(address("192.168.7.9")));
+        assertEquals(-1, trie.lookup(address("192.169.1.9")));
+    }
+
+    @Test
+    void defaultRoutesMatchTheirFamilyOnly() throws UnknownHostException {
+        CidrTrie trie = trie("0.0.0.0/0", "::/0", "2001:db8::/32");
+        assertEquals(0, trie.lookup(address("203.0.113.7")));
+        assertEquals(1, trie.lookup(address("2a00::1")));
+        assertEquals(2, trie.lookup(address("2001:db8::1")));
+    }
+
+    @Test
+    void ipv4BlocksAreMappedIntoIpv6() throws UnknownHostException {
+        // A mapped literal parses as IPv4, its prefix length counts the IPv4 bits
+        CidrTrie trie = trie("::/0", "::ffff:198.51.100.0/24");
+        assertEquals(1, trie.lookup(address("198.51.100.1")));
+        assertEquals(0, trie.lookup(address("192.0.2.1")));
+        assertEquals(0, trie.lookup(address("2001:db8::1")));
+        assertEquals(1, trie.lookup(0L, 0xFFFF_C633_6401L)); // ::ffff:198.51.100.1
+    }
+
+    @Test
+    void blockAddedTwiceKeepsItsLastValue() throws UnknownHostException {
+        CidrTrie.Builder builder = new CidrTrie.Builder();
+        builder.add("10.0.0.0/8", 4);
+        builder.add("10.0.0.0/8", 7);
+        assertEquals(7, builder.build().lookup(address("10.9.9.9")));
+    }
+
+    @Test
+    void hostBitsPastThePrefixAreIgnored() throws UnknownHostException {
+        assertEquals(0, trie("10.1.2.3/8").lookup(address("10.250.0.1")));
+    }
+
+    @Test
+    void rejectsHostNamesAndMalformedBlocks() {
+        String[] invalid = {"cafe", "beef/16", "dead", "localhost", "10.1", "1.2.3.256", "1.2.3.4.", "1..2.3",
+                ".::1", "fe80::1%lo", "dead:beef", "10.0.0.0/33", "2001:db8::/129", "10.0.0.0/x", "10.0.0.0/-1", ""};
+        for (String cidr : invalid) {
+            assertThrows(IllegalArgumentException.class, () -> new CidrTrie.Builder().add(cidr, 0), cidr);
+        }
+    }
+
+    @Test
+    void matchesALinearScanOverRandomBlocks() throws UnknownHostException {
+        Random random = new Random(16);
+        List<long[]> blocks = new ArrayList<>();
+        CidrTrie.Builder builder = new CidrTrie.Builder();
+        for (int i = 0; i < 20_000; i++) {
+            long[] block = randomBlock(random, blocks);
+            builder.add(format(block), i);
+            blocks.add(block);
+        }
+        CidrTrie trie = builder.build();
+
+        for (int i = 0; i < 50_000; i++) {
+            long[] query = randomAddress(random, blocks);
+            InetAddress address = InetAddress.getByAddress(bytes(query[0], query[1]));
+            assertEquals(linearScan(blocks, query[0], query[1]), trie.lookup(address), address.getHostAddress());
+        }
+    }
+
+    // Block as {high, low, prefix length over 128 bits}, IPv4 mapped to ::ffff:a.b.c.d
+    static long[] randomBlock(Random random, List<long[]> existing) {
+        boolean ipv4 = random.nextBoolean();
+        int bits = ipv4 ? 96 + 8 + random.nextInt(25) : 16 + random.nextInt(113);
+        long high;
+        long low;
+        if (!existing.isEmpty() && random.nextInt(4) == 0) {
+            // Nested in or around an earlier block, so prefixes share paths
+            long[] base = existing.get(random.nextInt(existing.size()));
+            boolean baseIpv4 = base[0] == 0L && base[2] >= 96;
+            bits = baseIpv4 ? 96 + 8 + random.nextInt(25) : 16 + random.nextInt(113);
+            high = base[0];
+            low = base[1] ^ (baseIpv4 ? random.nextInt() & 0xFFFF_FFFFL : random.nextLong());
+            if (!baseIpv4) {
+                high ^= random.nextLong() >>> Math.min(63, (int) base[2]);
+            }
+        } else if (ipv4) {
+            high = 0L;
+            low = 0xFFFF_0000_0000L | (random.nextInt() & 0xFFFF_FFFFL);
+        } else {
+            high = 0x2000_0000_0000_0000L | (random.nextLong() >>> 4); // 2000::/4, never IPv4 mapped
+            low = random.nextLong();
+        }
+        return new long[]{high & mask(bits), bits <= 64 ? 0L : low & mask(bits - 64), bits};
+    }
+
+    static long[] randomAddress(Random random, List<long[]> blocks) {
+        long[] block = blocks.get(random.nextInt(blocks.size()));
+        boolean ipv4 = block[0] == 0L && block[2] >= 96;
+        if (random.nextBoolean()) {
+            // Inside the block, host bits random
+            long high = block[0] | (~mask((int) block[2]) & random.nextLong());
+            long low = block[1] | (~mask((int) block[2] - 64) & (ipv4 ? random.nextInt() & 0xFFFF_FFFFL : random.nextLong()));
+            return new long[]{high, low};
+        }
+        if (ipv4) {
+            return new long[]{0L, 0xFFFF_0000_0000L | (random.nextInt() & 0xFFFF_FFFFL)};
+        }
+        return new long[]{0x2000_0000_0000_0000L | (random.nextLong() >>> 4), random.nextLong()};
+    }
+
+    // Longest matching block, the last one added among equal blocks
+    static int linearScan(List<long[]> blocks, long high, long low) {
+        int best = -1;
+        long bestBits = -1;
+        for (int i = 0; i < blocks.size(); i++) {
+            long[] block = blocks.get(i);
+            int bits = (int) block[2];
+            boolean matches = (high & mask(bits)) == block[0] && (bits <= 64 || (low & mask(bits - 64)) == block[1]);
+            if (matches && bits >= bestBits) {
+                best = i;
+                bestBits = bits;
+            }
+        }
+        return best;
+    }
+
+    static String format(long[] block) throws UnknownHostException {
+        InetAddress address = InetAddress.getByAddress(bytes(block[0], block[1]));
+        // IPv4 mapped addresses come back as Inet4Address, their prefix counts the last 32 bits
+        long bits = address.getAddress().length == 4 ? block[2] - 96 : block[2];
+        return address.getHostAddress() + "/" + bits;
+    }
+
+    static byte[] bytes(long high, long low) {
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (high >>> (56 - 8 * i));
+            bytes[8 + i] = (byte) (low >>> (56 - 8 * i));
+        }
+        return bytes;
+    }
+
+    // First bits of a 64-bit half, every bit past 64 and none below 0
+    private static long mask(int bits) {
+        return bits <= 0 ? 0L : bits >= 64 ? -1L : -1L << (64 - bits);
+    }
+}
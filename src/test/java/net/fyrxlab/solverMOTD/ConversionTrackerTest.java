@@ -0,0 +1,108 @@
+package net.fyrxlab.solverMOTD;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import static net.fyrxlab.solverMOTD.TestFixtures.ipv4;
+import static net.fyrxlab.solverMOTD.TestFixtures.ipv6;
+import static net.fyrxlab.solverMOTD.TestFixtures.variant;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ConversionTrackerTest {
+
+    private static final long WINDOW = 600_000L;
+
+    @Test
+    void joinIsCreditedToTheLastVariantShown() throws UnknownHostException {
+        ConversionTracker tracker = new ConversionTracker(1024, WINDOW, 3);
+        MotdVariant first = variant(0);
+        MotdVariant second = variant(2);
+        InetAddress address = InetAddress.getByName("198.51.100.7");
+        tracker.impression(address, first);
+        tracker.impression(address, second);
+        assertEquals(2, tracker.join(address));
+        assertEquals(1, tracker.getImpressions(first));
+        assertEquals(1, tracker.getImpressions(second));
+        assertEquals(0, tracker.getJoins(first));
+        assertEquals(1, tracker.getJoins(second));
+    }
+
+    @Test
+    void anImpressionConvertsOnlyOnce() throws UnknownHostException {
+        ConversionTracker tracker = new ConversionTracker(1024, WINDOW, 1);
+        InetAddress address = InetAddress.getByName("2001:db8::7");
+        tracker.impression(address, variant(0));
+        assertEquals(0, tracker.join(address));
+        assertEquals(-1, tracker.join(address));
+        tracker.impression(address, variant(0));
+        assertEquals(0, tracker.join(address));
+        assertEquals(2, tracker.getJoins(variant(0)));
+    }
+
+    @Test
+    void unseenAddressesAreNotCredited() throws UnknownHostException {
+        ConversionTracker tracker = new ConversionTracker(1 << 16, WINDOW, 1);
+        for (int i = 0; i < 1000; i++) {
+            tracker.impression(ipv4(0x0A00_0000 + i), variant(0));
+        }
+        int credited = 0;
+        for (int i = 0; i < 1000; i++) {
+            credited += tracker.join(ipv4(0x0B00_0000 + i)) >= 0 ? 1 : 0;
+        }
+        assertEquals(0, credited); // The fingerprint tells apart addresses sharing a slot
+        assertEquals(-1, tracker.join(null));
+        tracker.impression(null, variant(0));
+        assertEquals(1000, tracker.getImpressions(variant(0)));
+    }
+
+    @Test
+    void collisionsOnlyLoseAttributions() throws UnknownHostException {
+        // Far more addresses than slots, every credited join must still name the right variant
+        ConversionTracker tracker = new ConversionTracker(64, WINDOW, 4);
+        for (int i = 0; i < 10_000; i++) {
+            tracker.impression(ipv4(i), variant(i & 3));
+        }
+        int credited = 0;
+        for (int i = 0; i < 10_000; i++) {
+            int index = tracker.join(ipv4(i));
+            if (index >= 0) {
+                assertEquals(i & 3, index);
+                credited++;
+            }
+        }
+        assertEquals(64, credited); // Each slot holds the last address written to it
+    }
+
+    @Test
+    void craftedIpv6HashCodesAreNotCredited() throws UnknownHostException {
+        InetAddress shown = ipv6(0x2001_0db8_0000_0000L, 0x0000_0000_0000_0002L);
+        InetAddress joining = ipv6(0x2001_0db8_0000_0000L, 0x0000_0001_0000_0001L);
+        assertEquals(shown.hashCode(), joining.hashCode());
+        ConversionTracker tracker = new ConversionTracker(16, WINDOW, 1);
+        tracker.impression(shown, variant(0));
+        assertEquals(-1, tracker.join(joining));
+        assertEquals(0, tracker.join(shown));
+    }
+
+    @Test
+    void variantsPastTheLimitAreNotTracked() throws UnknownHostException {
+        ConversionTracker tracker = new ConversionTracker(1024, WINDOW, ConversionTracker.MAX_VARIANTS + 10);
+        MotdVariant last = variant(ConversionTracker.MAX_VARIANTS - 1);
+        MotdVariant over = variant(ConversionTracker.MAX_VARIANTS);
+        InetAddress address = InetAddress.getByName("203.0.113.1");
+        tracker.impression(address, over);
+        assertEquals(0, tracker.getImpressions(over));
+        assertEquals(-1, tracker.join(address));
+        tracker.impression(address, last);
+        assertEquals(ConversionTracker.MAX_VARIANTS - 1, tracker.join(address));
+    }
+
+    @Test
+    void tableSizeIsAPowerOfTwo() {
+        assertEquals(128 * 8L, new ConversionTracker(100, WINDOW, 1).getTableBytes());
+        assertEquals(128 * 8L, new ConversionTracker(128, WINDOW, 1).getTableBytes());
+        assertEquals(32 * 8L, new ConversionTracker(1, WINDOW, 1).getTableBytes());
+    }
+}
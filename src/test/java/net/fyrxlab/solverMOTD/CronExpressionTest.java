@@ -0,0 +1,98 @@
+package net.fyrxlab.solverMOTD;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CronExpressionTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 0, 0); // A Thursday
+    private static final LocalDateTime LIMIT = START.plusYears(2);
+
+    // The first matches after START
+    private static List<LocalDateTime> matches(String cron, int count) {
+        CronExpression expression = CronExpression.parse(cron);
+        List<LocalDateTime> times = new ArrayList<>();
+        LocalDateTime time = START;
+        while (times.size() < count && (time = expression.next(time, LIMIT)) != null) {
+            times.add(time);
+        }
+        return times;
+    }
+
+    private static List<LocalDateTime> at(int hour, int minute, int... monthDays) {
+        List<LocalDateTime> times = new ArrayList<>();
+        for (int i = 0; i < monthDays.length; i += 2) {
+            times.add(LocalDateTime.of(2026, monthDays[i], monthDays[i + 1], hour, minute));
+        }
+        return times;
+    }
+
+    @Test
+    void restrictedDayFieldsMatchEitherDay() {
+        // The 13th or any Friday, Friday the 13th only once
+        assertEquals(at(12, 0, 1, 2, 1, 9, 1, 13, 1, 16, 1, 23, 1, 30, 2, 6, 2, 13, 2, 20),
+                matches("0 12 13 * FRI", 9));
+    }
+
+    @Test
+    void starredDayFieldLeavesTheOtherAlone() {
+        assertEquals(at(12, 0, 1, 13, 2, 13, 3, 13), matches("0 12 13 * *", 3));
+        assertEquals(at(12, 0, 1, 2, 1, 9, 1, 16), matches("0 12 * * FRI", 3));
+        // Anything but "*" restricts the field, so a list still ORs with the weekday
+        assertEquals(at(6, 0, 1, 1, 1, 4, 1, 11, 1, 15), matches("0 6 1,15 * SUN", 4));
+    }
+
+    @Test
+    void sundayIsZeroOrSeven() {
+        assertEquals(matches("30 9 * * 0", 5), matches("30 9 * * 7", 5));
+        assertEquals(matches("30 9 * * 0", 5), matches("30 9 * * sun", 5));
+        assertEquals(at(9, 30, 1, 3, 1, 4), matches("30 9 * * SAT-7", 2));
+    }
+
+    @Test
+    void stepsRangesListsAndNames() {
+        assertEquals(at(0, 15, 1, 1), matches("*/15 * * * *", 1));
+        List<LocalDateTime> steps = matches("5/20 * * * *", 4); // From 5 to the end of the field
+        assertEquals(List.of(5, 25, 45, 5), List.of(steps.get(0).getMinute(), steps.get(1).getMinute(),
+                steps.get(2).getMinute(), steps.get(3).getMinute()));
+        assertEquals(at(8, 0, 1, 1, 1, 2, 1, 5), matches("0 8 * * mon-fri", 3));
+        assertEquals(at(18, 0, 3, 1, 6, 1, 9, 1), matches("0 18 1 MAR,JUN,9 *", 3));
+    }
+
+    @Test
+    void startsAfterTheGivenMinute() {
+        CronExpression everyMinute = CronExpression.parse("* * * * *");
+        LocalDateTime time = LocalDateTime.of(2026, 5, 1, 10, 0, 30);
+        assertEquals(LocalDateTime.of(2026, 5, 1, 10, 1), everyMinute.next(time, LIMIT));
+        assertEquals(LocalDateTime.of(2026, 5, 1, 10, 1), everyMinute.next(time.withSecond(0), LIMIT));
+    }
+
+    @Test
+    void crossesIntoTheNextYear() {
+        CronExpression newYear = CronExpression.parse("0 0 1 JAN *");
+        assertEquals(LocalDateTime.of(2027, 1, 1, 0, 0), newYear.next(START, LIMIT));
+    }
+
+    @Test
+    void stopsAtTheLimit() {
+        assertNull(CronExpression.parse("0 0 30 FEB *").next(START, LIMIT));
+        CronExpression noon = CronExpression.parse("0 12 * * *");
+        assertNull(noon.next(START, START.withHour(11).withMinute(59)));
+        assertEquals(START.withHour(12), noon.next(START, START.withHour(12))); // The limit is inclusive
+    }
+
+    @Test
+    void rejectsInvalidExpressions() {
+        for (String cron : new String[]{"* * * *", "* * * * * *", "60 * * * *", "* 24 * * *", "* * 0 * *",
+                "* * * 13 *", "* * * * 8", "10-5 * * * *", "*/0 * * * *", "* * * FOO *", "a * * * *"}) {
+            assertThrows(IllegalArgumentException.class, () -> CronExpression.parse(cron), cron);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package net.fyrxlab.solverMOTD;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FontWidthsTest {
+
+    private static int width(String text) {
+        return FontWidths.width(text, 0, text.length(), false);
+    }
+
+    @Test
+    void glyphWidthsIncludeTheGap() {
+        assertEquals(2, width("i"));
+        assertEquals(3, width("l"));
+        for (char c : "\"I[]t ".toCharArray()) {
+            assertEquals(4, width(String.valueOf(c)), String.valueOf(c));
+        }
+        for (char c : "()*<>fk{}".toCharArray()) {
+            assertEquals(5, width(String.valueOf(c)), String.valueOf(c));
+        }
+        assertEquals(6, width("W"));
+        assertEquals(7, width("@"));
+    }
+
+    @Test
+    void codesTakeNoWidthAndBoldAddsAPixel() {
+        assertEquals(width("(Hi)"), width("§c(§7Hi§c)"));
+        assertEquals(width("(Hi)") + 4, width("§l(Hi)"));
+        assertEquals(width("(Hi)") + 2, width("§l(H§ci)"));
+        assertEquals(5, FontWidths.spaceWidth(true));
+    }
+}
@@ -0,0 +1,90 @@
+package net.fyrxlab.solverMOTD;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static net.fyrxlab.solverMOTD.TestFixtures.variant;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MotdScheduleTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long START = LocalDateTime.of(2026, 1, 1, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+
+    private static MotdSchedule schedule(MotdSchedule.Window... windows) {
+        return new MotdSchedule(windows, ZoneOffset.UTC);
+    }
+
+    private static MotdSchedule.Window recurring(MotdVariant variant, String cron, long duration) {
+        return MotdSchedule.recurring(variant, CronExpression.parse(cron), duration);
+    }
+
+    @Test
+    void frequentCronCoversTheWholeHorizonAndBeyond() {
+        // 2016 openings a week, more than a timeline expands at once
+        MotdVariant fiveMinutes = variant("five", 0);
+        MotdSchedule schedule = schedule(recurring(fiveMinutes, "*/5 * * * *", MINUTE));
+        for (long time = START; time < START + 2 * MotdSchedule.HORIZON; time += MINUTE / 2) {
+            boolean open = (time - START) % (5 * MINUTE) < MINUTE;
+            assertSame(open ? fiveMinutes : null, schedule.activeAt(time), "minute " + (time - START) / MINUTE);
+        }
+    }
+
+    @Test
+    void transitionsOfAFrequentCronAreNeverSkipped() {
+        MotdVariant fiveMinutes = variant("five", 0);
+        MotdSchedule schedule = schedule(recurring(fiveMinutes, "*/5 * * * *", MINUTE));
+        // Follow the timer: sleep until the next transition, over more than a horizon
+        long time = START;
+        int openings = 0;
+        while (time < START + MotdSchedule.HORIZON + 60 * MINUTE) {
+            if (schedule.activeAt(time) != null) {
+                openings++;
+                assertEquals(0, (time - START) % (5 * MINUTE));
+            }
+            long next = schedule.nextTransition(time);
+            assertTrue(next > time && next - time <= 4 * MINUTE, "stuck at minute " + (time - START) / MINUTE);
+            time = next;
+        }
+        assertEquals(7 * 24 * 12 + 12, openings);
+    }
+
+    @Test
+    void backToBackOpeningsMergeIntoOneWindow() {
+        MotdVariant always = variant("always", 0);
+        MotdSchedule schedule = schedule(recurring(always, "* * * * *", 2 * MINUTE));
+        long time = START;
+        while (time < START + 3 * MotdSchedule.HORIZON) {
+            assertSame(always, schedule.activeAt(time));
+            time = schedule.nextTransition(time);
+        }
+    }
+
+    @Test
+    void firstOpenWindowWins() {
+        MotdVariant event = variant("event", 0);
+        MotdVariant hourly = variant("hourly", 1);
+        MotdSchedule schedule = schedule(
+                MotdSchedule.absolute(event, START + 30 * MINUTE, START + 90 * MINUTE),
+                recurring(hourly, "0 * * * *", 10 * MINUTE));
+        assertSame(hourly, schedule.activeAt(START));
+        assertNull(schedule.activeAt(START + 10 * MINUTE));
+        assertEquals(START + 30 * MINUTE, schedule.nextTransition(START + 10 * MINUTE));
+        assertSame(event, schedule.activeAt(START + 60 * MINUTE)); // Over the hourly opening
+        assertNull(schedule.activeAt(START + 90 * MINUTE));
+        assertSame(hourly, schedule.activeAt(START + 120 * MINUTE));
+    }
+
+    @Test
+    void windowOpenedBeforeTheTimelineStaysOpen() {
+        MotdVariant night = variant("night", 0);
+        MotdSchedule schedule = schedule(recurring(night, "0 22 * * *", 8 * 60 * MINUTE));
+        assertSame(night, schedule.activeAt(START + 3 * 60 * MINUTE)); // Opened the day before
+        assertEquals(START + 6 * 60 * MINUTE, schedule.nextTransition(START + 3 * 60 * MINUTE));
+    }
+}
@@ -0,0 +1,135 @@
+package net.fyrxlab.solverMOTD;
+
+import org.bukkit.event.server.ServerListPingEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Centered lines padded with the literal widths measured at compile time must match measuring the
+ * whole rendered MOTD, what every render did before.
+ */
+class MotdTemplateAlignTest {
+
+    private String name = ""; // Value of {name}, read on every render
+
+    private final PlaceholderRegistry registry = new PlaceholderRegistry(Collections.singletonMap("name",
+            new NativePlaceholder() {
+                @Override
+                public String resolve(ServerListPingEvent event) {
+                    return name;
+                }
+
+                @Override
+                public boolean isPerPinger() {
+                    return true;
+                }
+            }), false);
+
+    private MotdTemplate compile(MotdTemplate.RenderMode mode, boolean[] centered, String... raw) {
+        MotdLine[] lines = new MotdLine[raw.length];
+        for (int i = 0; i < raw.length; i++) {
+            lines[i] = MotdLine.parse(raw[i], registry);
+        }
+        return new MotdTemplate(mode, lines, centered, registry, new ColorFormatter(true), null);
+    }
+
+    private String render(MotdTemplate template, String value) {
+        name = value;
+        return template.render(null, new PlaceholderSnapshot(new String[registry.size()]));
+    }
+
+    // Pads the lines of an uncentered render the way the whole MOTD used to be measured
+    private static String pad(String rendered, boolean[] centered) {
+        StringBuilder padded = new StringBuilder();
+        boolean bold = false;
+        String[] lines = rendered.split("\n", -1);
+        for (int line = 0; line < lines.length; line++) {
+            String text = lines[line];
+            padded.append(line == 0 ? "" : "\n");
+            if (line < centered.length && centered[line]) {
+                int width = FontWidths.width(text, 0, text.length(), bold);
+                int spaces = Math.max(0, (FontWidths.MOTD_WIDTH - width) / 2 / FontWidths.spaceWidth(bold));
+                for (int i = 0; i < spaces; i++) {
+                    padded.append(' ');
+                }
+            }
+            padded.append(text);
+            bold = FontWidths.boldAfter(text, 0, text.length(), bold);
+        }
+        return padded.toString();
+    }
+
+    private void assertCentered(MotdTemplate.RenderMode mode, boolean[] centered, String[] raw, String... values) {
+        MotdTemplate aligned = compile(mode, centered, raw);
+        MotdTemplate plain = compile(mode, new boolean[raw.length], raw);
+        for (String value : values) {
+            assertEquals(pad(render(plain, value), centered), render(aligned, value),
+                    String.join("\n", raw) + " with " + value);
+        }
+    }
+
+    @Test
+    void legacyLinesCarryBoldAcrossValues() {
+        assertCentered(MotdTemplate.RenderMode.LEGACY, new boolean[]{true, true},
+                new String[]{"&e&lSolver&c&lMOTD {name}", "&7Welcome {name}&r, {name}!"},
+                "", "Steve", "&lBold", "&lStarts bold &7ends plain", "Wide WWWWWWWWWWWWWWWWWWWWWWWWWWWWWWWWWWWWWWWW");
+    }
+
+    @Test
+    void onlyCenteredLinesArePadded() {
+        assertCentered(MotdTemplate.RenderMode.LEGACY, new boolean[]{false, true},
+                new String[]{"&l{name}", "{name} is back"}, "Steve", "&lAlex");
+    }
+
+    @Test
+    void preParsedMiniMessageIsCenteredPerLine() {
+        String[] raw = {"<bold><red>Hi {name}</red>", "<gray>{name}</gray> and more"};
+        assertFalse(compile(MotdTemplate.RenderMode.MINIMESSAGE, new boolean[2], raw).isParsedPerRender());
+        assertCentered(MotdTemplate.RenderMode.MINIMESSAGE, new boolean[]{true, true}, raw, "", "Steve", "<b>not a tag");
+        assertCentered(MotdTemplate.RenderMode.MINIMESSAGE, new boolean[]{false, true}, raw, "Alex");
+    }
+
+    @Test
+    void markupParsedPerRenderIsMeasuredWhole() {
+        String[] raw = {"<gradient:red:blue>{name}</gradient>", "<bold>{name}"};
+        assertTrue(compile(MotdTemplate.RenderMode.MINIMESSAGE, new boolean[2], raw).isParsedPerRender());
+        assertCentered(MotdTemplate.RenderMode.MINIMESSAGE, new boolean[]{true, true}, raw, "Steve", "Notch");
+    }
+
+    @Test
+    void valuesBreakingTheLinesAreMeasuredWhole() {
+        String[] raw = {"&l{name}x", "&7second {name}"};
+        // A line break shifts the later lines, a trailing § takes the next char as its code
+        assertCentered(MotdTemplate.RenderMode.LEGACY, new boolean[]{true, true}, raw,
+                "one\ntwo", "ends in §", "§", "&", "§§l");
+    }
+
+    @Test
+    void literalEndingInsideACodeIsMeasuredWhole() {
+        assertCentered(MotdTemplate.RenderMode.LEGACY, new boolean[]{true},
+                new String[]{"Dangling §{name}"}, "lbold", "7gray", "");
+    }
+
+    @Test
+    void randomValuesMatchMeasuringTheWholeMotd() {
+        Random random = new Random(9);
+        String[] pieces = {"W", "i", "l", " ", ".", "é", "&l", "&r", "&c", "&#ff8800", "§l", "§", "&", "\n", "❤"};
+        String[] raw = {"&l{name} &6mid {name}", "&7{name}&lend"};
+        MotdTemplate aligned = compile(MotdTemplate.RenderMode.LEGACY, new boolean[]{true, true}, raw);
+        MotdTemplate plain = compile(MotdTemplate.RenderMode.LEGACY, new boolean[2], raw);
+        for (int round = 0; round < 2000; round++) {
+            StringBuilder value = new StringBuilder();
+            for (int i = random.nextInt(8); i > 0; i--) {
+                value.append(pieces[random.nextInt(pieces.length)]);
+            }
+            String rendered = render(plain, value.toString());
+            assertEquals(pad(rendered, new boolean[]{true, true}), render(aligned, value.toString()), value.toString());
+        }
+    }
+}
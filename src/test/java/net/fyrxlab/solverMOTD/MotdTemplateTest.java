@@ -0,0 +1,235 @@
+package net.fyrxlab.solverMOTD;
+
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MiniMessage templates pre-parsed with slot markers must render what parsing the filled in markup on
+ * every ping rendered: the same string, or for an empty value the same text and styles.
+ */
+class MotdTemplateTest {
+
+    private static final LegacyComponentSerializer SERIALIZER = LegacyComponentSerializer.builder()
+            .character(LegacyComponentSerializer.SECTION_CHAR)
+            .hexColors()
+            .useUnusualXRepeatedCharacterHexFormat()
+            .build();
+
+    private final PlaceholderRegistry registry = new PlaceholderRegistry(Collections.emptyMap(), true);
+
+    private MotdTemplate compile(String... raw) {
+        MotdLine[] lines = new MotdLine[raw.length];
+        for (int i = 0; i < raw.length; i++) {
+            lines[i] = MotdLine.parse(raw[i], registry);
+        }
+        return new MotdTemplate(MotdTemplate.RenderMode.MINIMESSAGE, lines, new boolean[raw.length], registry,
+                new ColorFormatter(true), null);
+    }
+
+    // Values by token, in registry slot order
+    private String render(MotdTemplate template, String... values) {
+        return template.render(null, new PlaceholderSnapshot(values.clone()));
+    }
+
+    // What the MOTD looked like before pre-parsing: values pasted into the markup in one pass, then parsed
+    private String reference(String[] raw, String... values) {
+        String[] tokens = registry.tokens();
+        StringBuilder markup = new StringBuilder();
+        for (int i = 0; i < raw.length; i++) {
+            markup.append(i == 0 ? "" : "\n");
+            String line = raw[i];
+            int at = 0;
+            outer:
+            while (at < line.length()) {
+                for (int slot = 0; slot < tokens.length; slot++) {
+                    if (line.startsWith(tokens[slot], at)) {
+                        markup.append(values[slot]);
+                        at += tokens[slot].length();
+                        continue outer;
+                    }
+                }
+                markup.append(line.charAt(at++));
+            }
+        }
+        return SERIALIZER.serialize(MiniMessage.miniMessage().deserialize(markup.toString()));
+    }
+
+    /**
+     * Characters as the client shows them, each followed by its color and decorations. Codes styling
+     * no character, such as the ones left around an empty value, don't show.
+     */
+    static String visible(String legacy) {
+        StringBuilder shown = new StringBuilder();
+        String color = "";
+        String decorations = "";
+        for (int i = 0; i < legacy.length(); i++) {
+            char c = legacy.charAt(i);
+            if (c != '§' || i + 1 == legacy.length()) {
+                shown.append(c).append('[').append(color).append(decorations).append(']');
+                continue;
+            }
+            char code = Character.toLowerCase(legacy.charAt(++i));
+            if (code == 'x' && i + 12 < legacy.length()) {
+                color = legacy.substring(i, i + 13);
+                decorations = "";
+                i += 12;
+            } else if (Character.digit(code, 16) >= 0 || code == 'r') {
+                color = code == 'r' ? "" : String.valueOf(code);
+                decorations = "";
+            } else if (decorations.indexOf(code) < 0) {
+                decorations += code;
+            }
+        }
+        return shown.toString();
+    }
+
+    private void assertSameAsReference(boolean preParsed, String[] raw, String[]... valueSets) {
+        MotdTemplate template = compile(raw);
+        assertEquals(preParsed, !template.isParsedPerRender(), String.join("\n", raw));
+        for (String[] values : valueSets) {
+            assertEquals(reference(raw, values), render(template, values), String.join("\n", raw));
+        }
+    }
+
+    @Test
+    void nestedTagsArePreParsed() {
+        assertSameAsReference(true,
+                new String[]{"<bold><red>Hi <italic>%player_name%</italic>!</red></bold> <gray>%server_online%"},
+                new String[]{"Steve", "12"}, new String[]{"A much longer name", "1,024"});
+    }
+
+    @Test
+    void slotsAcrossLinesAndRepeatedTokens() {
+        assertSameAsReference(true,
+                new String[]{"<#ff8800>%a_b% <u>%c_d%</u>", "<green>%a_b%</green> and %c_d%"},
+                new String[]{"x", "y"}, new String[]{"ünïcödé", "1"});
+    }
+
+    @Test
+    void emptyValueKeepsItsCodesButShowsTheSame() {
+        // The serializer styled the marker, with nothing filled in its codes are left without a character
+        String[] raw = {"<bold><red>Hi <italic>%player_name%</italic>!</red></bold>"};
+        MotdTemplate template = compile(raw);
+        assertFalse(template.isParsedPerRender());
+        assertEquals("§c§lHi §o§c§l!", render(template, ""));
+        assertEquals("§c§lHi !", reference(raw, ""));
+        assertEquals(visible(reference(raw, "")), visible(render(template, "")));
+    }
+
+    @Test
+    void unclosedTagsCarryIntoTheNextLine() {
+        assertSameAsReference(true, new String[]{"<aqua><bold>%a_b%", "%c_d% <reset>plain"},
+                new String[]{"one", "two"});
+    }
+
+    @Test
+    void gradientAroundASlotFallsBackToParsingPerRender() {
+        // The colors depend on the value length, the doubled marker comes out differently styled
+        assertSameAsReference(false, new String[]{"<gradient:red:blue>Welcome %player_name%!</gradient>"},
+                new String[]{"Steve"}, new String[]{""}, new String[]{"Alexander"});
+    }
+
+    @Test
+    void rainbowAroundASlotFallsBackToParsingPerRender() {
+        assertSameAsReference(false, new String[]{"<rainbow>%a_b%</rainbow>"}, new String[]{"abc"});
+    }
+
+    @Test
+    void gradientBesideASlotIsPreParsed() {
+        assertSameAsReference(true, new String[]{"<gradient:red:blue>Welcome</gradient> <white>%player_name%"},
+                new String[]{"Steve"}, new String[]{"Alexander"});
+    }
+
+    @Test
+    void markerInsideTagArgumentsFallsBack() {
+        assertSameAsReference(false, new String[]{"<click:run_command:'/say %a_b%'>click</click> %c_d%"},
+                new String[]{"hi", "there"});
+    }
+
+    @Test
+    void slotChangingTheMarkupFallsBack() {
+        assertSameAsReference(false, new String[]{"<color:%a_b%>colored</color>"}, new String[]{"red"}, new String[]{"#00ff00"});
+    }
+
+    @Test
+    void markerInsideHoverTextFallsBack() {
+        // The hover text is dropped by the § serializer, the slot never reaches the output
+        assertSameAsReference(false, new String[]{"<hover:show_text:'<red>%a_b%'>hover me</hover> %c_d%"},
+                new String[]{"tip", "shown"});
+    }
+
+    @Test
+    void slotInsideHoveredTextIsPreParsed() {
+        assertSameAsReference(true, new String[]{"<hover:show_text:'tip'><green>%a_b%</green></hover>"},
+                new String[]{"value"});
+    }
+
+    @Test
+    void staticMarkupIsRenderedOnce() {
+        MotdTemplate template = compile("<red>No placeholders</red>");
+        assertTrue(template.isStatic());
+        assertEquals(reference(new String[]{"<red>No placeholders</red>"}), render(template));
+    }
+
+    @Test
+    void valuesAreTextAfterPreParsing() {
+        // Pasted into the markup a value could add tags, a pre-parsed slot shows it as is
+        MotdTemplate template = compile("<red>%a_b%");
+        assertFalse(template.isParsedPerRender());
+        assertEquals("§c<bold>x", render(template, "<bold>x"));
+    }
+
+    @Test
+    void randomMarkupMatchesParsingPerRender() {
+        String[][] tags = {
+                {"<red>", "</red>"}, {"<bold>", "</bold>"}, {"<#12ab34>", "</#12ab34>"}, {"<italic>", "</italic>"},
+                {"<underlined>", "</underlined>"}, {"<gradient:gold:aqua>", "</gradient>"}, {"<rainbow>", "</rainbow>"},
+                {"<hover:show_text:'tip %t_h%'>", "</hover>"}, {"<click:suggest_command:'/go %t_c%'>", "</click>"},
+                {"<obfuscated>", "</obfuscated>"}, {"<reset>", ""}, {"<newline>", ""}
+        };
+        String[] pieces = {"%t_a%", "%t_b%", "text", " ", "ünï", "&a", "%", "{x}"};
+        String[] values = {"", "x", "Steve", "1,234", "ünïcödé", "&c", "a b c", "%t_a%"};
+        Random random = new Random(5);
+        for (int round = 0; round < 2000; round++) {
+            StringBuilder line = new StringBuilder();
+            int depth = 0;
+            String[] open = new String[8];
+            for (int part = random.nextInt(8); part >= 0; part--) {
+                int choice = random.nextInt(3);
+                if (choice == 0 && depth < open.length) {
+                    String[] tag = tags[random.nextInt(tags.length)];
+                    line.append(tag[0]);
+                    open[depth++] = tag[1];
+                } else if (choice == 1 && depth > 0 && random.nextBoolean()) {
+                    line.append(open[--depth]);
+                } else {
+                    line.append(pieces[random.nextInt(pieces.length)]);
+                }
+            }
+            String[] raw = random.nextInt(4) == 0 ? new String[]{line.toString(), "<gray>%t_a% second"} : new String[]{line.toString()};
+            MotdTemplate template = compile(raw);
+            for (int sample = 0; sample < 3; sample++) {
+                String[] filled = new String[registry.size()];
+                boolean empty = false;
+                for (int slot = 0; slot < filled.length; slot++) {
+                    filled[slot] = values[random.nextInt(values.length)];
+                    empty |= filled[slot].isEmpty();
+                }
+                String expected = reference(raw, filled);
+                String rendered = render(template, filled);
+                if (!empty) {
+                    assertEquals(expected, rendered, String.join("\n", raw));
+                }
+                assertEquals(visible(expected), visible(rendered), String.join("\n", raw));
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package net.fyrxlab.solverMOTD;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Random;
+
+import static net.fyrxlab.solverMOTD.TestFixtures.ipv4;
+import static net.fyrxlab.solverMOTD.TestFixtures.ipv6;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PingAnalyticsTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    void smallCountsAreExact() throws UnknownHostException {
+        PingAnalytics analytics = new PingAnalytics(HOUR, 4096, 10);
+        long now = analytics.getCurrent().getStart();
+        for (int i = 0; i < 100; i++) {
+            analytics.record(ipv4(0xC633_6400 + i % 10), now);
+        }
+        analytics.record(null, now);
+        assertEquals(10, analytics.getCurrent().getUniquePingers());
+        assertEquals(100, analytics.getCurrent().getPings());
+    }
+
+    @Test
+    void uniquePingersStayWithinTheErrorBound() throws UnknownHostException {
+        // Standard error is about 0.8%, 3% leaves room for unlucky hashes
+        for (int distinct : new int[]{1_000, 30_000, 200_000}) {
+            PingAnalytics analytics = new PingAnalytics(HOUR, 4096, 10);
+            long now = analytics.getCurrent().getStart();
+            for (int i = 0; i < distinct; i++) {
+                InetAddress address = ipv4(0x0A00_0000 + i * 7919);
+                analytics.record(address, now);
+                analytics.record(address, now); // Pinging again changes nothing
+            }
+            long estimate = analytics.getCurrent().getUniquePingers();
+            assertEquals(distinct, estimate, distinct * 0.03, distinct + " addresses");
+        }
+    }
+
+    @Test
+    void heaviestPingersAreFoundAndNeverUnderestimated() throws UnknownHostException {
+        PingAnalytics analytics = new PingAnalytics(HOUR, 1024, 5);
+        long now = analytics.getCurrent().getStart();
+        Random random = new Random(5);
+        int[] heavy = {500, 400, 300, 250, 200};
+        // Heavy pingers mixed into a crowd of light ones, far more addresses than counters
+        int[] left = heavy.clone();
+        int remaining = 0;
+        for (int count : heavy) {
+            remaining += count;
+        }
+        int light = 0;
+        while (remaining > 0 || light < 20_000) {
+            if (remaining > 0 && random.nextInt(20) == 0) {
+                int pinger;
+                do {
+                    pinger = random.nextInt(heavy.length);
+                } while (left[pinger] == 0);
+                left[pinger]--;
+                remaining--;
+                analytics.record(ipv4(0x0B00_0000 + pinger), now);
+            } else {
+                analytics.record(ipv4(0x0C00_0000 + random.nextInt(10_000)), now);
+                light++;
+            }
+        }
+        List<PingAnalytics.Pinger> heaviest = analytics.getCurrent().getHeaviest();
+        assertEquals(heavy.length, heaviest.size());
+        for (int i = 0; i < heavy.length; i++) {
+            PingAnalytics.Pinger pinger = heaviest.get(i);
+            assertEquals(ipv4(0x0B00_0000 + i), pinger.getAddress());
+            assertTrue(pinger.getPings() >= heavy[i], pinger.getPings() + " < " + heavy[i]);
+            assertTrue(pinger.getPings() <= heavy[i] + 50, "estimate " + pinger.getPings() + " for " + heavy[i]);
+        }
+    }
+
+    @Test
+    void fewerPingersThanTheTopAreAllListed() throws UnknownHostException {
+        PingAnalytics analytics = new PingAnalytics(HOUR, 4096, 10);
+        long now = analytics.getCurrent().getStart();
+        for (int i = 1; i <= 3; i++) {
+            for (int ping = 0; ping < i; ping++) {
+                analytics.record(ipv4(i), now);
+            }
+        }
+        List<PingAnalytics.Pinger> heaviest = analytics.getCurrent().getHeaviest();
+        assertEquals(3, heaviest.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(ipv4(3 - i), heaviest.get(i).getAddress());
+            assertEquals(3 - i, heaviest.get(i).getPings());
+        }
+    }
+
+    @Test
+    void ipv6PingersSharingAHashCodeAreToldApart() throws UnknownHostException {
+        PingAnalytics analytics = new PingAnalytics(HOUR, 4096, 10);
+        long now = analytics.getCurrent().getStart();
+        // Every address of the /64 has the hash code of the first one, the words add up the same
+        for (int i = 0; i < 1000; i++) {
+            analytics.record(ipv6(0x2001_0db8_0000_0000L, ((long) i << 32) | (1000 - i)), now);
+        }
+        assertEquals(1000, analytics.getCurrent().getUniquePingers(), 30);
+        for (int ping = 0; ping < 5; ping++) {
+            analytics.record(ipv6(0x2001_0db8_0000_0000L, 7L << 32 | 993), now);
+        }
+        PingAnalytics.Pinger heaviest = analytics.getCurrent().getHeaviest().get(0);
+        assertEquals(ipv6(0x2001_0db8_0000_0000L, 7L << 32 | 993), heaviest.getAddress());
+        assertTrue(heaviest.getPings() <= 10, "estimate " + heaviest.getPings());
+    }
+
+    @Test
+    void windowsStartOverAtEveryMultipleOfTheLength() throws UnknownHostException {
+        PingAnalytics analytics = new PingAnalytics(HOUR, 4096, 10);
+        PingAnalytics.Window first = analytics.getCurrent();
+        assertEquals(0, first.getStart() % HOUR);
+        assertNull(analytics.getPrevious());
+        analytics.record(ipv4(1), first.getStart() + HOUR - 1);
+        assertSame(first, analytics.getCurrent());
+
+        analytics.record(ipv4(2), first.getStart() + HOUR + 5);
+        PingAnalytics.Window second = analytics.getCurrent();
+        assertSame(first, analytics.getPrevious());
+        assertEquals(first.getStart() + HOUR, second.getStart());
+        assertEquals(1, second.getPings());
+        assertEquals(1, first.getPings());
+
+        analytics.record(ipv4(3), first.getStart() + 3 * HOUR); // An empty window in between is skipped
+        assertSame(second, analytics.getPrevious());
+        assertNotNull(analytics.getCurrent());
+        assertEquals(first.getStart() + 3 * HOUR, analytics.getCurrent().getStart());
+    }
+
+    @Test
+    void sketchMemoryFollowsTheWidth() {
+        assertEquals(2L * (16384 + 4 * 4096 * 8L), new PingAnalytics(HOUR, 4096, 10).getSketchBytes());
+        assertEquals(2L * (16384 + 4 * 4096 * 8L), new PingAnalytics(HOUR, 3000, 10).getSketchBytes());
+    }
+}
@@ -0,0 +1,146 @@
+package net.fyrxlab.solverMOTD;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.List;
+
+import static net.fyrxlab.solverMOTD.TestFixtures.variant;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class PingLogTest {
+
+    @TempDir
+    File folder;
+
+    private PingLog log;
+
+    @AfterEach
+    void close() throws IOException {
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    private PingLog open(int capacity) throws IOException {
+        if (log != null) {
+            log.close();
+        }
+        log = PingLog.open(new File(folder, "pings.dat"), new File(folder, "pings.names"), capacity);
+        return log;
+    }
+
+    // Rows without the header
+    private List<String> export(long from, long to) throws IOException {
+        File output = new File(folder, "out.csv");
+        int count = log.export(from, to, output);
+        List<String> lines = Files.readAllLines(output.toPath(), StandardCharsets.UTF_8);
+        assertEquals("time,address,variant,render_ns", lines.get(0));
+        assertEquals(count, lines.size() - 1);
+        return lines.subList(1, lines.size());
+    }
+
+    private static String time(String row) {
+        return row.substring(0, row.indexOf(','));
+    }
+
+    @Test
+    void exportsTheRangeOldestFirst() throws IOException {
+        open(16);
+        InetAddress address = InetAddress.getByName("203.0.113.7");
+        for (long time : new long[]{5000L, 1000L, 3000L, 2000L, 4000L}) {
+            log.append(time, address, PingLog.THROTTLED, 42L);
+        }
+        List<String> rows = export(2000L, 4000L);
+        assertEquals(2, rows.size());
+        assertEquals(Instant.ofEpochMilli(2000L) + ",203.0.113.7,throttled,42", rows.get(0));
+        assertEquals(Instant.ofEpochMilli(3000L).toString(), time(rows.get(1)));
+        assertEquals(5, export(0L, Long.MAX_VALUE).size());
+        assertEquals(0, export(6000L, 7000L).size());
+    }
+
+    @Test
+    void wrapsAroundOverTheOldestRecords() throws IOException {
+        open(16);
+        InetAddress address = InetAddress.getByName("2001:db8::1");
+        for (int i = 1; i <= 40; i++) {
+            log.append(i * 1000L, address, PingLog.THROTTLED, i);
+        }
+        List<String> rows = export(0L, Long.MAX_VALUE);
+        assertEquals(16, rows.size());
+        assertEquals(Instant.ofEpochMilli(25_000L).toString(), time(rows.get(0)));
+        assertEquals(Instant.ofEpochMilli(40_000L).toString(), time(rows.get(15)));
+        assertEquals(Instant.ofEpochMilli(40_000L) + ",2001:db8:0:0:0:0:0:1,throttled,40", rows.get(15));
+    }
+
+    @Test
+    void reopeningAppendsAfterTheNewestRecord() throws IOException {
+        open(16);
+        InetAddress address = InetAddress.getByName("198.51.100.1");
+        for (int i = 1; i <= 20; i++) {
+            log.append(i * 1000L, address, PingLog.THROTTLED, 0L);
+        }
+        open(16);
+        log.append(21_000L, address, PingLog.THROTTLED, 0L);
+        List<String> rows = export(0L, Long.MAX_VALUE);
+        assertEquals(16, rows.size());
+        assertEquals(Instant.ofEpochMilli(6000L).toString(), time(rows.get(0))); // 5000 was overwritten
+        assertEquals(Instant.ofEpochMilli(21_000L).toString(), time(rows.get(15)));
+    }
+
+    @Test
+    void newCapacityStartsOver() throws IOException {
+        open(16);
+        log.register(new MotdVariant[]{variant("old", 0)});
+        log.append(1000L, InetAddress.getByName("198.51.100.1"), PingLog.variantId("old"), 0L);
+        open(32);
+        assertEquals(0, export(0L, Long.MAX_VALUE).size());
+        log.append(2000L, InetAddress.getByName("198.51.100.1"), PingLog.variantId("old"), 0L);
+        // The names file started over too, the record falls back to its id
+        assertEquals("#" + Integer.toHexString(PingLog.variantId("old")), export(0L, Long.MAX_VALUE).get(0).split(",")[2]);
+    }
+
+    @Test
+    void recordsKeepTheirVariantWhenVariantsChange() throws IOException {
+        open(16);
+        InetAddress address = InetAddress.getByName("198.51.100.1");
+        MotdVariant[] before = {variant("default", 0), variant("summer", 1), variant("winter", 2)};
+        log.register(before);
+        log.append(1000L, address, before[1].getLogId(), 0L);
+        log.append(2000L, address, before[2].getLogId(), 0L);
+
+        // Reordered and "summer" removed, after a restart
+        open(16);
+        MotdVariant[] after = {variant("default", 0), variant("winter", 1), variant("spring", 2)};
+        log.register(after);
+        log.append(3000L, address, after[1].getLogId(), 0L);
+        log.append(4000L, address, after[2].getLogId(), 0L);
+
+        List<String> rows = export(0L, Long.MAX_VALUE);
+        assertEquals(4, rows.size());
+        String[] expected = {"summer", "winter", "winter", "spring"};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], rows.get(i).split(",")[2]);
+        }
+        // Registering again adds nothing to the names file
+        long size = new File(folder, "pings.names").length();
+        log.register(after);
+        assertEquals(size, new File(folder, "pings.names").length());
+    }
+
+    @Test
+    void variantIdsAreStableAndNeverThrottled() {
+        assertEquals(PingLog.variantId("summer"), PingLog.variantId(new String("summer")));
+        assertNotEquals(PingLog.variantId("Aa"), PingLog.variantId("BB")); // Same String hash code
+        assertNotEquals(PingLog.THROTTLED, PingLog.variantId(""));
+        assertEquals(0x811C9DC5, PingLog.variantId("")); // FNV-1a offset basis
+    }
+}
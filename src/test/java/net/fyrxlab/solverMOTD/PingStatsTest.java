@@ -0,0 +1,110 @@
+package net.fyrxlab.solverMOTD;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PingStatsTest {
+
+    @Test
+    void smallValuesHaveTheirOwnBucket() {
+        for (int nanos = 0; nanos < 16; nanos++) {
+            assertEquals(nanos, PingStats.bucket(nanos));
+            assertEquals(nanos, PingStats.bucketValue(nanos));
+        }
+        assertEquals(0, PingStats.bucket(-5L)); // A clock going back counts as 0
+    }
+
+    @Test
+    void bucketEdgesFollowThePowersOfTwo() {
+        int previous = PingStats.bucket(15L);
+        for (int exponent = PingStats.SUB_BITS + 1; exponent <= PingStats.MAX_EXPONENT; exponent++) {
+            long width = 1L << (exponent - PingStats.SUB_BITS);
+            for (int sub = 0; sub < 1 << PingStats.SUB_BITS; sub++) {
+                long low = (1L << exponent) + sub * width;
+                int bucket = PingStats.bucket(low);
+                assertEquals(previous + 1, bucket, "2^" + exponent + " + " + sub);
+                assertEquals(bucket, PingStats.bucket(low + width - 1));
+                assertEquals(previous, PingStats.bucket(low - 1));
+                previous = bucket;
+            }
+        }
+        assertEquals(PingStats.BUCKETS - 1, previous);
+    }
+
+    @Test
+    void valuesPastTheLastExponentShareTheLastBucket() {
+        int last = PingStats.BUCKETS - 1;
+        assertEquals(last - 8, PingStats.bucket((1L << 36) - 1));
+        assertEquals(last - 7, PingStats.bucket(1L << 36));
+        assertEquals(last, PingStats.bucket((1L << 37) - 1));
+        assertEquals(last, PingStats.bucket(1L << 37));
+        assertEquals(last, PingStats.bucket(1L << 50));
+        assertEquals(last, PingStats.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    void bucketValueIsWithinTheBucket() {
+        for (int bucket = 0; bucket < PingStats.BUCKETS; bucket++) {
+            assertEquals(bucket, PingStats.bucket(PingStats.bucketValue(bucket)), "bucket " + bucket);
+        }
+        // Half of a bucket 12.5% wide at most
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = 0; i < 100_000; i++) {
+            long nanos = random.nextLong(1L, 1L << 37);
+            long reported = PingStats.bucketValue(PingStats.bucket(nanos));
+            assertTrue(Math.abs(reported - nanos) <= nanos / 16, nanos + " reported as " + reported);
+        }
+    }
+
+    @Test
+    void minuteWindowHoldsTheLastTickOnly() {
+        PingStats stats = new PingStats();
+        assertNull(stats.getMinute());
+        for (int i = 0; i < 90; i++) {
+            stats.record(PingStats.TOTAL, 1000L);
+        }
+        for (int i = 0; i < 10; i++) {
+            stats.record(PingStats.TOTAL, 1_000_000L);
+        }
+        stats.count(PingStats.PINGS);
+        stats.tick();
+        PingStats.Window minute = stats.getMinute();
+        assertEquals(100, minute.getSamples(PingStats.TOTAL));
+        assertEquals(1, minute.getCount(PingStats.PINGS));
+        assertEquals(1000.0, minute.getPercentile(PingStats.TOTAL, 0.5), 1000 / 16.0);
+        assertEquals(1000.0, minute.getPercentile(PingStats.TOTAL, 0.9), 1000 / 16.0);
+        assertEquals(1_000_000.0, minute.getPercentile(PingStats.TOTAL, 0.91), 1_000_000 / 16.0);
+        assertEquals(0L, minute.getPercentile(PingStats.PAPI, 0.99));
+        assertEquals(90 * 1000L + 10 * 1_000_000L, stats.getSum(PingStats.TOTAL));
+
+        stats.tick();
+        assertEquals(0, stats.getMinute().getSamples(PingStats.TOTAL));
+        assertEquals(100, stats.getBucketCount(PingStats.TOTAL, PingStats.bucket(1000L))
+                + stats.getBucketCount(PingStats.TOTAL, PingStats.bucket(1_000_000L)));
+    }
+
+    @Test
+    void hourWindowSlidesOverTheLastSixtyMinutes() {
+        PingStats stats = new PingStats();
+        for (int tick = 1; tick <= 200; tick++) {
+            for (int i = 0; i < tick; i++) {
+                stats.count(PingStats.PINGS); // Minute t holds t pings, so every covered minute shows in the sum
+            }
+            stats.tick();
+            PingStats.Window hour = stats.getHour();
+            int minutes = hour.getMinutes();
+            assertEquals(tick < 60 ? tick : 60 + tick % 5, minutes, "tick " + tick);
+            long expected = 0;
+            for (int t = tick - minutes + 1; t <= tick; t++) {
+                expected += t;
+            }
+            assertEquals(expected, hour.getCount(PingStats.PINGS), "tick " + tick);
+            assertEquals(expected / (minutes * 60.0), hour.getRate(PingStats.PINGS), 1e-9);
+        }
+    }
+}
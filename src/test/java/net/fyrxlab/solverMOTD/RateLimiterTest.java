@@ -0,0 +1,104 @@
+package net.fyrxlab.solverMOTD;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import static net.fyrxlab.solverMOTD.TestFixtures.ipv4;
+import static net.fyrxlab.solverMOTD.TestFixtures.ipv6;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    // Pings let through in a row at one instant
+    private static int burst(RateLimiter limiter, InetAddress address, long now) {
+        int allowed = 0;
+        while (limiter.tryAcquire(address, now)) {
+            allowed++;
+        }
+        return allowed;
+    }
+
+    @Test
+    void burstThenOneTokenPerInterval() throws UnknownHostException {
+        RateLimiter limiter = new RateLimiter(1024, 5, 10_000L); // A token every 2s
+        long now = System.currentTimeMillis();
+        InetAddress address = InetAddress.getByName("198.51.100.1");
+        assertEquals(5, burst(limiter, address, now));
+        assertFalse(limiter.tryAcquire(address, now + 1999L));
+        assertTrue(limiter.tryAcquire(address, now + 2000L));
+        assertFalse(limiter.tryAcquire(address, now + 2000L));
+        assertEquals(1, burst(limiter, address, now + 4000L));
+        assertEquals(4, limiter.getThrottled()); // Every burst ends on a throttled ping
+    }
+
+    @Test
+    void bucketRefillsUpToTheBurstOnly() throws UnknownHostException {
+        RateLimiter limiter = new RateLimiter(1024, 5, 10_000L);
+        long now = System.currentTimeMillis();
+        InetAddress address = InetAddress.getByName("2001:db8::1");
+        assertEquals(5, burst(limiter, address, now));
+        assertEquals(2, burst(limiter, address, now + 4000L)); // Two tokens back
+        assertEquals(5, burst(limiter, address, now + 14_000L)); // Full again, idle time isn't banked
+        assertEquals(5, burst(limiter, address, now + 1_000_000L));
+    }
+
+    @Test
+    void addressesHaveTheirOwnBuckets() throws UnknownHostException {
+        RateLimiter limiter = new RateLimiter(1 << 16, 3, 3000L);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(3, burst(limiter, ipv4(0x0A00_0000 + i), now), "address " + i);
+        }
+        assertTrue(limiter.tryAcquire(null, now)); // Unknown pingers are never limited
+    }
+
+    @Test
+    void singlePingBurstWaitsTheWholePeriod() throws UnknownHostException {
+        RateLimiter limiter = new RateLimiter(16, 0, 500L); // 0 pings still lets one through
+        long now = System.currentTimeMillis();
+        InetAddress address = InetAddress.getByName("203.0.113.9");
+        assertTrue(limiter.tryAcquire(address, now));
+        assertFalse(limiter.tryAcquire(address, now + 499L));
+        assertTrue(limiter.tryAcquire(address, now + 500L));
+    }
+
+    @Test
+    void sweepFreesRefilledBucketsOnly() throws UnknownHostException {
+        RateLimiter limiter = new RateLimiter(1 << 16, 4, 4000L);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire(ipv4(i), now);
+        }
+        for (int i = 50; i < 60; i++) {
+            burst(limiter, ipv4(i), now + 3000L);
+        }
+        assertEquals(60, limiter.sweep(now));
+        assertEquals(10, limiter.sweep(now + 1000L)); // The single pings refilled
+        // Still throttled after the sweep, their slots were kept
+        assertFalse(limiter.tryAcquire(ipv4(50), now + 3000L));
+        assertEquals(0, limiter.sweep(now + 8000L));
+        assertEquals(4, burst(limiter, ipv4(50), now + 8000L));
+    }
+
+    @Test
+    void craftedIpv6HashCodesDontShareABucket() throws UnknownHostException {
+        // Same /64 and same Inet6Address.hashCode(), the sum of the four words
+        InetAddress victim = ipv6(0x2001_0db8_0000_0000L, 0x0000_0000_0000_0002L);
+        InetAddress attacker = ipv6(0x2001_0db8_0000_0000L, 0x0000_0001_0000_0001L);
+        assertEquals(victim.hashCode(), attacker.hashCode());
+        RateLimiter limiter = new RateLimiter(16, 3, 3000L);
+        long now = System.currentTimeMillis();
+        assertEquals(3, burst(limiter, attacker, now));
+        assertEquals(3, burst(limiter, victim, now));
+    }
+
+    @Test
+    void tableSizeIsAPowerOfTwo() {
+        assertEquals(16384 * 8L, new RateLimiter(16384, 10, 10_000L).getTableBytes());
+        assertEquals(16384 * 8L, new RateLimiter(10_000, 10, 10_000L).getTableBytes());
+    }
+}
@@ -0,0 +1,125 @@
+package net.fyrxlab.solverMOTD;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Random;
+
+import static net.fyrxlab.solverMOTD.TestFixtures.ipv4;
+import static net.fyrxlab.solverMOTD.TestFixtures.ipv6;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ReturningPlayersTest {
+
+    @TempDir
+    File folder;
+
+    @Test
+    void remembersTheLastPlayerPerAddress() throws UnknownHostException {
+        ReturningPlayers players = new ReturningPlayers(16);
+        InetAddress v4 = InetAddress.getByName("198.51.100.1");
+        InetAddress v6 = InetAddress.getByName("2001:db8::1");
+        assertNull(players.lookup(v4));
+        assertNull(players.lookup(null));
+        players.record(v4, "Steve");
+        players.record(v6, "Alex");
+        assertEquals("Steve", players.lookup(v4));
+        assertEquals("Alex", players.lookup(v6));
+        players.record(v4, "Notch");
+        assertEquals("Notch", players.lookup(v4));
+        assertEquals(2, players.size());
+        assertNull(players.lookup(InetAddress.getByName("198.51.100.2")));
+    }
+
+    @Test
+    void eachFamilyIsCappedAtTheCapacity() throws UnknownHostException {
+        ReturningPlayers players = new ReturningPlayers(16);
+        for (int i = 0; i < 1000; i++) {
+            players.record(ipv4(0x0A00_0000 + i), "v4-" + i);
+            players.record(ipv6(0x2001_0db8_0000_0000L, i), "v6-" + i);
+            // A new entry is never the one evicted
+            assertEquals("v4-" + i, players.lookup(ipv4(0x0A00_0000 + i)));
+            assertEquals("v6-" + i, players.lookup(ipv6(0x2001_0db8_0000_0000L, i)));
+        }
+        assertEquals(32, players.size());
+    }
+
+    @Test
+    void recentlyReadEntriesSurviveEviction() throws UnknownHostException {
+        ReturningPlayers players = new ReturningPlayers(16);
+        for (int i = 0; i < 16; i++) {
+            players.record(ipv4(i), "old-" + i);
+        }
+        // The first eviction sweeps every bit clear, so every old entry is cold afterwards
+        players.record(ipv4(100), "new-0");
+        int hot = players.lookup(ipv4(0)) != null ? 0 : 1;
+        assertEquals("old-" + hot, players.lookup(ipv4(hot)));
+        for (int i = 1; i < 8; i++) {
+            players.record(ipv4(100 + i), "new-" + i);
+        }
+        assertEquals("old-" + hot, players.lookup(ipv4(hot)));
+        int oldLeft = 0;
+        for (int i = 0; i < 16; i++) {
+            oldLeft += players.lookup(ipv4(i)) != null ? 1 : 0;
+        }
+        assertEquals(8, oldLeft);
+    }
+
+    @Test
+    void evictionKeepsEveryRemainingEntryReachable() throws UnknownHostException {
+        // Random keys collide in a small table, so backward shift deletion moves entries around a lot
+        ReturningPlayers players = new ReturningPlayers(64);
+        Random random = new Random(17);
+        int[] keys = new int[10_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextInt();
+            players.record(ipv4(keys[i]), Integer.toString(i % 50));
+        }
+        int found = 0;
+        for (int i = 0; i < keys.length; i++) {
+            String name = players.lookup(ipv4(keys[i]));
+            if (name != null) {
+                found++;
+                assertEquals(Integer.toString(i % 50), name);
+            }
+        }
+        assertEquals(players.size(), found);
+        assertEquals(64, found);
+    }
+
+    @Test
+    void snapshotRoundTrip() throws IOException {
+        ReturningPlayers players = new ReturningPlayers(16);
+        for (int i = 0; i < 10; i++) {
+            players.record(ipv4(0xC633_6400 + i), "v4-" + i);
+            players.record(ipv6(0x2001_0db8_0000_0000L, i), "v6-" + i);
+        }
+        File file = new File(folder, "returning.dat");
+        players.save(file);
+
+        ReturningPlayers loaded = new ReturningPlayers(16);
+        loaded.load(file);
+        assertEquals(20, loaded.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("v4-" + i, loaded.lookup(ipv4(0xC633_6400 + i)));
+            assertEquals("v6-" + i, loaded.lookup(ipv6(0x2001_0db8_0000_0000L, i)));
+        }
+
+        // A smaller capacity keeps only as many entries as it holds
+        ReturningPlayers smaller = new ReturningPlayers(4);
+        smaller.load(file);
+        assertEquals(8, smaller.size());
+    }
+
+    @Test
+    void missingSnapshotIsIgnored() throws IOException {
+        ReturningPlayers players = new ReturningPlayers(16);
+        players.load(new File(folder, "missing.dat"));
+        assertEquals(0, players.size());
+    }
+}
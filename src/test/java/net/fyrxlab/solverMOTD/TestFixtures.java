@@ -0,0 +1,36 @@
+package net.fyrxlab.solverMOTD;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Addresses and variants shared by the tests
+ */
+final class TestFixtures {
+
+    private TestFixtures() {
+    }
+
+    static InetAddress ipv4(int address) throws UnknownHostException {
+        return InetAddress.getByAddress(new byte[]{(byte) (address >>> 24), (byte) (address >>> 16),
+                (byte) (address >>> 8), (byte) address});
+    }
+
+    static InetAddress ipv6(long high, long low) throws UnknownHostException {
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (high >>> (56 - 8 * i));
+            bytes[8 + i] = (byte) (low >>> (56 - 8 * i));
+        }
+        return InetAddress.getByAddress(bytes);
+    }
+
+    // Variant without templates, enough for anything that only reads its name and index
+    static MotdVariant variant(String name, int index) {
+        return new MotdVariant(name, index, 1.0, new MotdTemplate[0], 1000L, new String[0], 1000L);
+    }
+
+    static MotdVariant variant(int index) {
+        return variant("v" + index, index);
+    }
+}